@@ -0,0 +1,64 @@
+package com.example.countrypostcodeservice.benchmark;
+
+import com.example.countrypostcodeservice.domain.Country;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Shared benchmark input: the {@code /v3.1/all?fields=name,postalCode,cca2} sample on the test
+ * classpath, as raw bytes or mapped to {@link Country} entities.
+ */
+public final class BenchmarkData {
+
+    public static final String SAMPLE = "/restcountries-sample.json";
+
+    private BenchmarkData() {}
+
+    public static byte[] sampleJson() {
+        try (InputStream in = BenchmarkData.class.getResourceAsStream(SAMPLE)) {
+            if (in == null) {
+                throw new IllegalStateException("Missing " + SAMPLE + " on the classpath");
+            }
+            return in.readAllBytes();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public static List<Country> sampleCountries() {
+        try {
+            List<Country> countries = new ArrayList<>();
+            for (JsonNode node : new ObjectMapper().readTree(sampleJson())) {
+                JsonNode postal = node.path("postalCode");
+                countries.add(new Country(
+                        node.get("cca2").asText(),
+                        node.path("name").path("common").asText(),
+                        postal.path("format").textValue(),
+                        postal.path("regex").textValue()));
+            }
+            return countries;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /** A postcode shaped like {@code postalFormat}: '#' becomes a digit, '@' a letter. */
+    public static String samplePostcode(String postalFormat) {
+        if (postalFormat == null) {
+            return "12345";
+        }
+        String first = postalFormat.split("\\|", 2)[0];
+        StringBuilder sb = new StringBuilder(first.length());
+        for (int i = 0; i < first.length(); i++) {
+            char c = first.charAt(i);
+            sb.append(c == '#' ? (char) ('1' + i % 9) : c == '@' ? (char) ('A' + i % 26) : c);
+        }
+        return sb.toString();
+    }
+}
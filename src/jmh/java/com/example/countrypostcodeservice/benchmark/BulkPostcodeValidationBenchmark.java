@@ -0,0 +1,88 @@
+package com.example.countrypostcodeservice.benchmark;
+
+import com.example.countrypostcodeservice.domain.Country;
+import com.example.countrypostcodeservice.service.BulkPostcodeValidationService;
+import com.example.countrypostcodeservice.service.CountryCache;
+import com.example.countrypostcodeservice.service.CountryFreshness;
+import com.example.countrypostcodeservice.service.CountryMetrics;
+import com.example.countrypostcodeservice.service.CountryQueryService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+import reactor.core.scheduler.Schedulers;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of the bulk postcode validator. Scores are in pairs/second because each
+ * invocation validates {@link #PAIRS} lines. All countries are cached, so no DB or upstream.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@OperationsPerInvocation(BulkPostcodeValidationBenchmark.PAIRS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BulkPostcodeValidationBenchmark {
+
+    static final int PAIRS = 100_000;
+
+    private static final String[][] SAMPLES = {
+            {"NL", "1234AB"}, {"NL", "1234 AB"}, {"CN", "100000"}, {"DE", "10115"},
+            {"US", "90210-1234"}, {"GB", "SW1A 1AA"}, {"CO", "110111"}, {"FR", "7500"},
+    };
+
+    @Param({"4096"})
+    int chunkSize;
+
+    private BulkPostcodeValidationService validator;
+    private byte[] ndjson;
+    private byte[] csv;
+
+    @Setup
+    public void setup() {
+        var cache = new CountryCache(1000, Duration.ofMinutes(10));
+        cache.put(new Country("NL", "Netherlands", "#### @@", "^(\\d{4}[A-Z]{2})$"));
+        cache.put(new Country("CN", "China", "######", "^(\\d{6})$"));
+        cache.put(new Country("DE", "Germany", "#####", "^(\\d{5})$"));
+        cache.put(new Country("US", "United States", "#####-####", "^\\d{5}(-\\d{4})?$"));
+        cache.put(new Country("GB", "United Kingdom", "@# #@@|@## #@@|@@# #@@|@@## #@@|@#@ #@@|@@#@ #@@|GIR0AA",
+                "^(([A-Z]\\d{2}[A-Z]{2})|([A-Z]\\d{3}[A-Z]{2})|([A-Z]{2}\\d{2}[A-Z]{2})|([A-Z]{2}\\d{3}[A-Z]{2})|([A-Z]\\d[A-Z]\\d[A-Z]{2})|([A-Z]{2}\\d[A-Z]\\d[A-Z]{2})|(GIR0AA))$"));
+        cache.put(new Country("CO", "Colombia", null, null));
+        cache.put(new Country("FR", "France", "#####", "^(\\d{5})$"));
+
+        // every sample country is cached, so repository and importer are never reached
+        var queries = new CountryQueryService(null, null, cache,
+                new CountryFreshness(Duration.ofDays(1), Duration.ofDays(30), Duration.ofMinutes(1)),
+                new CountryMetrics(new SimpleMeterRegistry()), Schedulers.immediate());
+        validator = new BulkPostcodeValidationService(queries, new ObjectMapper(), Schedulers.boundedElastic(), chunkSize, 8);
+
+        var json = new StringBuilder();
+        var text = new StringBuilder();
+        for (int i = 0; i < PAIRS; i++) {
+            String[] s = SAMPLES[i % SAMPLES.length];
+            json.append("{\"cca2\":\"").append(s[0]).append("\",\"postcode\":\"").append(s[1]).append("\"}\n");
+            text.append(s[0]).append(',').append(s[1]).append('\n');
+        }
+        ndjson = json.toString().getBytes(StandardCharsets.UTF_8);
+        csv = text.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public long ndjson() throws IOException {
+        return validator.validate(new ByteArrayInputStream(ndjson), OutputStream.nullOutputStream(),
+                BulkPostcodeValidationService.Format.NDJSON);
+    }
+
+    @Benchmark
+    public long csv() throws IOException {
+        return validator.validate(new ByteArrayInputStream(csv), OutputStream.nullOutputStream(),
+                BulkPostcodeValidationService.Format.CSV);
+    }
+}
@@ -0,0 +1,54 @@
+package com.example.countrypostcodeservice.benchmark;
+
+import com.example.countrypostcodeservice.domain.Country;
+import com.example.countrypostcodeservice.service.CountryIndex;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Alpha-2 lookup: the 676-slot {@link CountryIndex} versus the previous approach of
+ * upper-casing the code and looking it up in a hash map. Input is lower case, as most
+ * clients send it. Run with {@code -prof gc}: the index should report ~0 B/op.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CountryIndexBenchmark {
+
+    private static final String[] CODES = {"nl", "de", "be", "fr", "cn", "us", "gb", "co"};
+
+    private final CountryIndex index = new CountryIndex();
+    private final Map<String, Country> map = new ConcurrentHashMap<>();
+    private int next;
+
+    @Setup
+    public void setup() {
+        for (String code : CODES) {
+            Country c = new Country(code.toUpperCase(Locale.ROOT), "Country " + code, null, null);
+            index.put(c);
+            map.put(c.getCca2(), c);
+        }
+    }
+
+    private String nextCode() {
+        next = (next + 1) & 7;
+        return CODES[next];
+    }
+
+    @Benchmark
+    public Country index() {
+        return index.get(nextCode());
+    }
+
+    @Benchmark
+    public Country upperCaseAndHashMap() {
+        return map.get(nextCode().toUpperCase(Locale.ROOT));
+    }
+}
@@ -0,0 +1,80 @@
+package com.example.countrypostcodeservice.benchmark;
+
+import com.example.countrypostcodeservice.CountryPostCodeServiceApplication;
+import com.example.countrypostcodeservice.domain.Country;
+import com.example.countrypostcodeservice.repository.CountryRepository;
+import com.example.countrypostcodeservice.service.CountryCache;
+import com.example.countrypostcodeservice.service.CountryQueryService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link CountryQueryService#findOrFetchByCca2} against the real application context and H2:
+ * a cache hit, a cache miss served from the database, and the bare repository lookup for
+ * reference. The sample countries are stored up front, so the upstream API is never called.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CountryLookupBenchmark {
+
+    private ConfigurableApplicationContext context;
+    private CountryQueryService service;
+    private CountryCache cache;
+    private CountryRepository repository;
+    private String[] codes;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        context = new SpringApplicationBuilder(CountryPostCodeServiceApplication.class)
+                .web(WebApplicationType.NONE)
+                .properties("spring.jpa.show-sql=false",
+                        "countries.preload.enabled=false",
+                        "logging.level.root=WARN")
+                .run();
+        service = context.getBean(CountryQueryService.class);
+        cache = context.getBean(CountryCache.class);
+        repository = context.getBean(CountryRepository.class);
+
+        List<Country> countries = BenchmarkData.sampleCountries();
+        repository.saveAll(countries);
+        codes = countries.stream().map(Country::getCca2).toArray(String[]::new);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    private String nextCode() {
+        String code = codes[next];
+        next = (next + 1) % codes.length;
+        return code;
+    }
+
+    @Benchmark
+    public Object cacheHit() {
+        return service.findOrFetchByCca2(nextCode());
+    }
+
+    @Benchmark
+    public Object databaseHit() {
+        String code = nextCode();
+        cache.invalidate(code);
+        return service.findOrFetchByCca2(code);
+    }
+
+    @Benchmark
+    public Object repositoryFindById() {
+        return repository.findById(nextCode());
+    }
+}
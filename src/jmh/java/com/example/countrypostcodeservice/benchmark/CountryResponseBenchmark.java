@@ -0,0 +1,51 @@
+package com.example.countrypostcodeservice.benchmark;
+
+import com.example.countrypostcodeservice.domain.Country;
+import com.example.countrypostcodeservice.dto.CountryInfoResponse;
+import com.example.countrypostcodeservice.service.CountrySnapshots;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of producing the GET /countries/{cca2} body for a cache hit: mapping to the DTO alone,
+ * mapping and serializing with Jackson on every request, versus reusing the country's
+ * pre-serialized snapshot. Run with {@code -prof gc} to compare allocation per operation.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CountryResponseBenchmark {
+
+    private ObjectMapper mapper;
+    private CountrySnapshots snapshots;
+    private Country country;
+
+    @Setup
+    public void setup() {
+        mapper = new ObjectMapper();
+        snapshots = new CountrySnapshots(mapper);
+        country = new Country("NL", "Netherlands", "#### @@", "^(\\d{4}[A-Z]{2})$");
+        snapshots.snapshotOf(country);
+    }
+
+    @Benchmark
+    public CountryInfoResponse dtoOnly() {
+        return CountryInfoResponse.from(country);
+    }
+
+    @Benchmark
+    public byte[] dtoAndJackson() throws JsonProcessingException {
+        return mapper.writeValueAsBytes(CountryInfoResponse.from(country));
+    }
+
+    @Benchmark
+    public byte[] preSerializedSnapshot() {
+        return snapshots.snapshotOf(country).json();
+    }
+}
@@ -0,0 +1,35 @@
+package com.example.countrypostcodeservice.benchmark;
+
+import com.example.countrypostcodeservice.service.CountryNameIndex;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One name search against an index over the sample countries: a prefix ("neth"), a multi-hit
+ * prefix ("united"), a substring ("land"), an accented query and a miss. Limit 10, as the
+ * search endpoint defaults to.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CountrySearchBenchmark {
+
+    @Param({"neth", "united", "land", "Côte", "atlantis"})
+    public String query;
+
+    private CountryNameIndex index;
+
+    @Setup
+    public void setup() {
+        index = new CountryNameIndex(BenchmarkData.sampleCountries());
+    }
+
+    @Benchmark
+    public Object search() {
+        return index.search(query, 10);
+    }
+}
@@ -0,0 +1,81 @@
+package com.example.countrypostcodeservice.benchmark;
+
+import com.example.countrypostcodeservice.domain.Country;
+import com.example.countrypostcodeservice.service.CountryCache;
+import com.example.countrypostcodeservice.service.CountryFreshness;
+import com.example.countrypostcodeservice.service.CountryMetrics;
+import com.example.countrypostcodeservice.service.CountryQueryService;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.composite.CompositeMeterRegistry;
+import io.micrometer.core.instrument.config.MeterFilter;
+import io.micrometer.core.instrument.distribution.DistributionStatisticConfig;
+import io.micrometer.prometheusmetrics.PrometheusConfig;
+import io.micrometer.prometheusmetrics.PrometheusMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of the lookup/upstream instrumentation on the hot path. NOOP is an empty composite
+ * registry (every meter is a no-op), PROMETHEUS is the registry the application scrapes, with
+ * the upstream timer publishing histogram buckets as configured in application.properties.
+ * {@code cacheHit} is a full cache-hit lookup; {@code upstreamTimer} times an already-completed
+ * upstream Mono, i.e. the timer's own overhead.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MetricsOverheadBenchmark {
+
+    public enum Registry { NOOP, PROMETHEUS }
+
+    @Param({"NOOP", "PROMETHEUS"})
+    Registry registry;
+
+    private CountryMetrics metrics;
+    private CountryQueryService service;
+    private Mono<Country> upstream;
+
+    @Setup
+    public void setup() {
+        MeterRegistry meters = switch (registry) {
+            case NOOP -> new CompositeMeterRegistry();
+            case PROMETHEUS -> {
+                var prometheus = new PrometheusMeterRegistry(PrometheusConfig.DEFAULT);
+                prometheus.config().meterFilter(new MeterFilter() {
+                    @Override
+                    public DistributionStatisticConfig configure(Meter.Id id, DistributionStatisticConfig config) {
+                        return DistributionStatisticConfig.builder().percentilesHistogram(true).build().merge(config);
+                    }
+                });
+                yield prometheus;
+            }
+        };
+        metrics = new CountryMetrics(meters);
+
+        Country nl = new Country("NL", "Netherlands", "#### @@", "^(\\d{4}[A-Z]{2})$");
+        CountryCache cache = new CountryCache(100, Duration.ofMinutes(1));
+        cache.put(nl);
+        // cache hits only: repository and importer are never reached
+        service = new CountryQueryService(null, null, cache,
+                new CountryFreshness(Duration.ofDays(1), Duration.ofDays(30), Duration.ofMinutes(1)), metrics, Schedulers.immediate());
+        upstream = Mono.just(nl);
+    }
+
+    @Benchmark
+    public Object cacheHit() {
+        return service.findOrFetchByCca2("NL");
+    }
+
+    @Benchmark
+    public Country upstreamTimer() {
+        return metrics.timeUpstream(CountryMetrics.Endpoint.ALPHA, upstream).block();
+    }
+}
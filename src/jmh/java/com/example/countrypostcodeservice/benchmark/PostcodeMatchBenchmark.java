@@ -0,0 +1,86 @@
+package com.example.countrypostcodeservice.benchmark;
+
+import com.example.countrypostcodeservice.domain.Country;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.List;
+import java.util.regex.Pattern;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Postcode matching across every country in the sample, one format-shaped postcode each
+ * (with and without the separators the format prints). Scores are per pass over the whole
+ * sample; matchers are compiled during setup, so this is the steady-state
+ * {@link Country#matchesPostalCode} cost. The {@code pattern*} variants run the same regexes
+ * through {@link Pattern} as a baseline for the compiled DFA; {@code normalizeMessyPostcodes}
+ * measures {@link Country#postcodeNormalizer()} on lower-cased, dash-separated input.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PostcodeMatchBenchmark {
+
+    private Country[] countries;
+    private String[] formatted;
+    private String[] compact;
+    private String[] messy;
+    private Pattern[] patterns;
+
+    @Setup
+    public void setup() {
+        List<Country> sample = BenchmarkData.sampleCountries();
+        countries = sample.toArray(Country[]::new);
+        formatted = new String[countries.length];
+        compact = new String[countries.length];
+        messy = new String[countries.length];
+        patterns = new Pattern[countries.length];
+        for (int i = 0; i < countries.length; i++) {
+            formatted[i] = BenchmarkData.samplePostcode(countries[i].getPostalFormat());
+            compact[i] = formatted[i].replaceAll("[\\s-]", "");
+            messy[i] = " " + formatted[i].toLowerCase().replace(' ', '-') + " ";
+            countries[i].matchesPostalCode(formatted[i]);
+            countries[i].postcodeNormalizer();
+            String regex = countries[i].getPostalRegex();
+            patterns[i] = Pattern.compile(regex != null ? regex : "(?!)");
+        }
+    }
+
+    @Benchmark
+    public void formattedPostcodes(Blackhole bh) {
+        for (int i = 0; i < countries.length; i++) {
+            bh.consume(countries[i].matchesPostalCode(formatted[i]));
+        }
+    }
+
+    @Benchmark
+    public void compactPostcodes(Blackhole bh) {
+        for (int i = 0; i < countries.length; i++) {
+            bh.consume(countries[i].matchesPostalCode(compact[i]));
+        }
+    }
+
+    @Benchmark
+    public void patternFormattedPostcodes(Blackhole bh) {
+        for (int i = 0; i < patterns.length; i++) {
+            bh.consume(patterns[i].matcher(formatted[i]).matches());
+        }
+    }
+
+    @Benchmark
+    public void patternCompactPostcodes(Blackhole bh) {
+        for (int i = 0; i < patterns.length; i++) {
+            bh.consume(patterns[i].matcher(compact[i]).matches());
+        }
+    }
+
+    @Benchmark
+    public void normalizeMessyPostcodes(Blackhole bh) {
+        for (int i = 0; i < countries.length; i++) {
+            bh.consume(countries[i].postcodeNormalizer().normalize(messy[i]));
+        }
+    }
+}
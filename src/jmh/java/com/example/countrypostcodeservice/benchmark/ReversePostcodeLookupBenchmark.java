@@ -0,0 +1,67 @@
+package com.example.countrypostcodeservice.benchmark;
+
+import com.example.countrypostcodeservice.domain.Country;
+import com.example.countrypostcodeservice.service.PostcodeShapeIndex;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+/**
+ * "Which countries could this postcode belong to?" over the sample countries, three ways:
+ * every country's regex through {@link Pattern} (the naive loop), every country's compiled DFA,
+ * and the {@link PostcodeShapeIndex} length / first-character prefilter.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ReversePostcodeLookupBenchmark {
+
+    @Param({"1234AB", "12345", "SW192AB", "XYZ"})
+    public String postcode;
+
+    private Country[] countries;
+    private Pattern[] patterns;
+    private PostcodeShapeIndex index;
+
+    @Setup
+    public void setup() {
+        List<Country> sample = BenchmarkData.sampleCountries();
+        countries = sample.toArray(Country[]::new);
+        patterns = new Pattern[countries.length];
+        for (int i = 0; i < countries.length; i++) {
+            String regex = countries[i].getPostalRegex();
+            patterns[i] = Pattern.compile(regex != null ? regex : "(?!)");
+            countries[i].postalMatcher();
+        }
+        index = new PostcodeShapeIndex(sample);
+    }
+
+    @Benchmark
+    public List<String> naivePatternLoop() {
+        List<String> result = new ArrayList<>();
+        for (int i = 0; i < patterns.length; i++) {
+            if (patterns[i].matcher(postcode).matches()) result.add(countries[i].getCca2());
+        }
+        return result;
+    }
+
+    @Benchmark
+    public List<String> naiveDfaLoop() {
+        List<String> result = new ArrayList<>();
+        for (Country country : countries) {
+            if (country.matchesPostalCode(postcode)) result.add(country.getCca2());
+        }
+        return result;
+    }
+
+    @Benchmark
+    public List<String> shapeIndex() {
+        return index.countriesFor(postcode);
+    }
+}
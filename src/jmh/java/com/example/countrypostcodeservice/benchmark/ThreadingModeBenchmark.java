@@ -0,0 +1,128 @@
+package com.example.countrypostcodeservice.benchmark;
+
+import com.example.countrypostcodeservice.repository.CountryRepository;
+import com.example.countrypostcodeservice.service.CountryCache;
+import com.example.countrypostcodeservice.service.CountryImportService;
+import com.example.countrypostcodeservice.service.CountryMetrics;
+import com.example.countrypostcodeservice.service.UpstreamCallPolicy;
+import com.example.countrypostcodeservice.service.UpstreamGuard;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.io.IOException;
+import java.lang.reflect.Proxy;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Platform vs virtual threads for the blocking import path under upstream latency.
+ * Each operation is a burst of {@code concurrency} simultaneous cache misses, each one a
+ * blocking {@link CountryImportService#fetchAndSave} on its own "request" thread. PLATFORM
+ * uses a fixed pool sized like Tomcat's default (200); VIRTUAL uses a thread per request.
+ * Sample mode reports burst latency percentiles (p99 included); run with {@code -prof gc}
+ * for allocation/memory figures.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 10)
+@Fork(1)
+public class ThreadingModeBenchmark {
+
+    public enum ThreadMode { PLATFORM, VIRTUAL }
+
+    private static final int TOMCAT_MAX_THREADS = 200;
+
+    @Param({"PLATFORM", "VIRTUAL"})
+    ThreadMode mode;
+
+    @Param({"100", "500"})
+    int concurrency;
+
+    @Param({"50"})
+    int upstreamLatencyMs;
+
+    private MockWebServer upstream;
+    private ExecutorService requestThreads;
+    private Scheduler jpaScheduler;
+    private CountryImportService importer;
+    private String[] codes;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        upstream = new MockWebServer();
+        upstream.setDispatcher(new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) {
+                String code = request.getRequestUrl().pathSegments().get(2).toUpperCase();
+                return new MockResponse().setResponseCode(200)
+                        .setHeader("Content-Type", "application/json")
+                        .setBody("{\"cca2\":\"" + code + "\",\"name\":{\"common\":\"Country " + code + "\"}}")
+                        .setHeadersDelay(upstreamLatencyMs, TimeUnit.MILLISECONDS);
+            }
+        });
+        upstream.start();
+
+        if (mode == ThreadMode.VIRTUAL) {
+            requestThreads = Executors.newVirtualThreadPerTaskExecutor();
+            jpaScheduler = Schedulers.fromExecutorService(Executors.newVirtualThreadPerTaskExecutor(), "jpa-virtual");
+        } else {
+            requestThreads = Executors.newFixedThreadPool(TOMCAT_MAX_THREADS);
+            jpaScheduler = Schedulers.newBoundedElastic(16, 10_000, "jpa");
+        }
+
+        // save() just echoes the entity: this measures threading, not H2
+        CountryRepository repo = (CountryRepository) Proxy.newProxyInstance(
+                CountryRepository.class.getClassLoader(),
+                new Class<?>[]{CountryRepository.class},
+                (proxy, method, args) -> method.getName().equals("save") ? args[0] : null);
+
+        WebClient client = WebClient.builder().baseUrl(upstream.url("/").toString()).build();
+        var cache = new CountryCache(1000, Duration.ofMinutes(10));
+        var metrics = new CountryMetrics(new SimpleMeterRegistry());
+        var policy = new UpstreamCallPolicy(Duration.ofSeconds(30), Duration.ofSeconds(30), 0,
+                Duration.ZERO, Duration.ZERO, 0, false, Duration.ZERO, Duration.ZERO);
+        var guard = new UpstreamGuard(100, 100, 100, 100, Duration.ofMinutes(1), Duration.ofSeconds(1), 1,
+                10_000, 10_000, Duration.ofSeconds(30), new SimpleMeterRegistry());
+        importer = new CountryImportService(client, repo, cache, metrics, policy, guard,
+                jpaScheduler, Duration.ofSeconds(30));
+
+        codes = new String[concurrency];
+        for (int i = 0; i < concurrency; i++) {
+            codes[i] = String.format("%c%c", 'A' + i / 26, 'A' + i % 26);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        requestThreads.shutdownNow();
+        jpaScheduler.dispose();
+        upstream.shutdown();
+    }
+
+    @Benchmark
+    public int burstOfCacheMisses() throws Exception {
+        List<Future<Boolean>> requests = new ArrayList<>(concurrency);
+        for (String code : codes) {
+            requests.add(requestThreads.submit(() -> importer.fetchAndSave(code).isPresent()));
+        }
+        int ok = 0;
+        for (Future<Boolean> f : requests) {
+            if (f.get()) ok++;
+        }
+        return ok;
+    }
+}
@@ -0,0 +1,127 @@
+package com.example.countrypostcodeservice.benchmark;
+
+import com.example.countrypostcodeservice.domain.Country;
+import com.example.countrypostcodeservice.dto.CountryBatchResponse;
+import com.example.countrypostcodeservice.dto.CountryInfoResponse;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.IterationParams;
+import org.openjdk.jmh.runner.IterationType;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Encode and decode cost of the country responses per wire format, as a client of
+ * GET /countries/{cca2} (one {@link CountryInfoResponse}) or GET /countries?codes= (a batch of
+ * every sample country) sees it. Payload sizes per format are reported by
+ * {@code countryPayload} and {@code batchPayload} as their {@code :bytes} metric. Run with
+ * {@code -prof gc} to compare allocation per operation.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class WireFormatBenchmark {
+
+    @Param({"JSON", "CBOR", "SMILE"})
+    public String format;
+
+    private ObjectWriter countryWriter;
+    private ObjectReader countryReader;
+    private ObjectWriter batchWriter;
+    private ObjectReader batchReader;
+    private CountryInfoResponse country;
+    private CountryBatchResponse batch;
+    private byte[] countryBytes;
+    private byte[] batchBytes;
+
+    @Setup
+    public void setup() throws IOException {
+        ObjectMapper mapper = switch (format) {
+            case "CBOR" -> new ObjectMapper(new CBORFactory());
+            case "SMILE" -> new ObjectMapper(new SmileFactory());
+            default -> new ObjectMapper();
+        };
+        countryWriter = mapper.writerFor(CountryInfoResponse.class);
+        countryReader = mapper.readerFor(CountryInfoResponse.class);
+        batchWriter = mapper.writerFor(CountryBatchResponse.class);
+        batchReader = mapper.readerFor(CountryBatchResponse.class);
+
+        country = CountryInfoResponse.from(
+                new Country("NL", "NLD", "528", "Netherlands", "#### @@", "^(\\d{4}[A-Z]{2})$", null));
+        List<CountryInfoResponse> all = BenchmarkData.sampleCountries().stream().map(CountryInfoResponse::from).toList();
+        batch = new CountryBatchResponse(all, List.of());
+        countryBytes = countryWriter.writeValueAsBytes(country);
+        batchBytes = batchWriter.writeValueAsBytes(batch);
+    }
+
+    /**
+     * Encoded size in bytes, reported as the {@code :bytes} secondary metric of the payload
+     * benchmarks (so it lands in the JSON result next to the timings). EVENTS counters add up
+     * over measurement iterations, so only the first one counts; the rest report zero.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class PayloadSize {
+        public long bytes;
+        private boolean reported;
+
+        @Setup(Level.Iteration)
+        public void startIteration() {
+            if (reported) bytes = 0;
+        }
+
+        @TearDown(Level.Iteration)
+        public void endIteration(IterationParams iteration) {
+            if (iteration.getType() == IterationType.MEASUREMENT) reported = true;
+        }
+
+        void record(int encoded) {
+            if (!reported) bytes = encoded;
+        }
+    }
+
+    @Benchmark
+    public byte[] encodeCountry() throws IOException {
+        return countryWriter.writeValueAsBytes(country);
+    }
+
+    @Benchmark
+    public CountryInfoResponse decodeCountry() throws IOException {
+        return countryReader.readValue(countryBytes);
+    }
+
+    @Benchmark
+    public byte[] encodeBatch() throws IOException {
+        return batchWriter.writeValueAsBytes(batch);
+    }
+
+    @Benchmark
+    public CountryBatchResponse decodeBatch() throws IOException {
+        return batchReader.readValue(batchBytes);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @Warmup(iterations = 0)
+    @Measurement(iterations = 1)
+    public void countryPayload(PayloadSize size) throws IOException {
+        size.record(countryWriter.writeValueAsBytes(country).length);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @Warmup(iterations = 0)
+    @Measurement(iterations = 1)
+    public void batchPayload(PayloadSize size) throws IOException {
+        size.record(batchWriter.writeValueAsBytes(batch).length);
+    }
+}
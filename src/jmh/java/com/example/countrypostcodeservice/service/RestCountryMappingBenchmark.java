@@ -0,0 +1,65 @@
+package com.example.countrypostcodeservice.service;
+
+import com.example.countrypostcodeservice.benchmark.BenchmarkData;
+import com.example.countrypostcodeservice.domain.Country;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Import-side mapping: upstream JSON into {@link RestCountry} and on into {@link Country}.
+ * {@code single} is one {@code /v3.1/alpha/{code}} body; {@code allAsList} and
+ * {@code allStreamed} read the whole {@code /v3.1/all} sample, the latter element by element
+ * as {@code bodyToFlux} does. Lives in this package because {@link RestCountry} is package-private.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RestCountryMappingBenchmark {
+
+    private ObjectReader reader;
+    private ObjectReader listReader;
+    private byte[] single;
+    private byte[] all;
+
+    @Setup
+    public void setup() throws IOException {
+        ObjectMapper mapper = new ObjectMapper();
+        reader = mapper.readerFor(RestCountry.class);
+        listReader = mapper.readerForListOf(RestCountry.class);
+        all = BenchmarkData.sampleJson();
+        single = mapper.writeValueAsBytes(mapper.readTree(all).get(0));
+    }
+
+    @Benchmark
+    public Country single() throws IOException {
+        RestCountry rc = reader.readValue(single);
+        return CountryImportService.toCountry(rc, null);
+    }
+
+    @Benchmark
+    public void allAsList(Blackhole bh) throws IOException {
+        List<RestCountry> list = listReader.readValue(all);
+        for (RestCountry rc : list) {
+            bh.consume(CountryImportService.toCountry(rc, null));
+        }
+    }
+
+    @Benchmark
+    public void allStreamed(Blackhole bh) throws IOException {
+        try (MappingIterator<RestCountry> it = reader.readValues(all)) {
+            while (it.hasNext()) {
+                bh.consume(CountryImportService.toCountry(it.next(), null));
+            }
+        }
+    }
+}
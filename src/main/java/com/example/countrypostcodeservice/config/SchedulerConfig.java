@@ -0,0 +1,54 @@
+package com.example.countrypostcodeservice.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnThreading;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.concurrent.Executors;
+
+@Configuration
+public class SchedulerConfig {
+    /** Bounded pool that blocking JPA work is offloaded to from reactive pipelines */
+    @Bean(destroyMethod = "dispose")
+    @Primary
+    @ConditionalOnThreading(Threading.PLATFORM)
+    public Scheduler jpaScheduler(@Value("${countries.jpa.threads}") int threads,
+                                  @Value("${countries.jpa.queue-size}") int queueSize) {
+        return Schedulers.newBoundedElastic(threads, queueSize, "jpa");
+    }
+
+    /**
+     * With spring.threads.virtual.enabled=true, Tomcat already handles requests on virtual
+     * threads; offloaded JPA work gets one virtual thread per task as well. Concurrency is
+     * then bounded by the JDBC connection pool rather than by a platform thread count.
+     */
+    @Bean(destroyMethod = "dispose")
+    @Primary
+    @ConditionalOnThreading(Threading.VIRTUAL)
+    public Scheduler virtualJpaScheduler() {
+        return Schedulers.fromExecutorService(Executors.newVirtualThreadPerTaskExecutor(), "jpa-virtual");
+    }
+
+    /**
+     * Bulk validation workers. They block on lookups whose saves run on the JPA scheduler, so
+     * they must not take its threads: with both on one bounded pool, the workers end up holding
+     * every thread while they wait for saves that can never be scheduled.
+     */
+    @Bean(destroyMethod = "dispose")
+    @ConditionalOnThreading(Threading.PLATFORM)
+    public Scheduler bulkScheduler(@Value("${countries.bulk.threads}") int threads,
+                                   @Value("${countries.bulk.queue-size}") int queueSize) {
+        return Schedulers.newBoundedElastic(threads, queueSize, "bulk");
+    }
+
+    @Bean(name = "bulkScheduler", destroyMethod = "dispose")
+    @ConditionalOnThreading(Threading.VIRTUAL)
+    public Scheduler virtualBulkScheduler() {
+        return Schedulers.fromExecutorService(Executors.newVirtualThreadPerTaskExecutor(), "bulk-virtual");
+    }
+}
@@ -1,15 +1,54 @@
 package com.example.countrypostcodeservice.config;
 
+import io.netty.channel.ChannelOption;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
 import org.springframework.web.reactive.function.client.WebClient;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.time.Duration;
 
 @Configuration
 public class WebClientConfig {
+
+    /**
+     * Dedicated keep-alive pool for REST Countries: bounded connections, a bounded queue of
+     * callers waiting for one, and idle/old connections evicted before upstream drops them.
+     */
+    @Bean(destroyMethod = "dispose")
+    public ConnectionProvider restCountriesConnectionProvider(
+            @Value("${countries.upstream.pool.max-connections}") int maxConnections,
+            @Value("${countries.upstream.pool.pending-acquire-max-count}") int pendingAcquireMaxCount,
+            @Value("${countries.upstream.pool.pending-acquire-timeout}") Duration pendingAcquireTimeout,
+            @Value("${countries.upstream.pool.max-idle-time}") Duration maxIdleTime,
+            @Value("${countries.upstream.pool.max-life-time}") Duration maxLifeTime) {
+        return ConnectionProvider.builder("restcountries")
+                .maxConnections(maxConnections)
+                .pendingAcquireMaxCount(pendingAcquireMaxCount)
+                .pendingAcquireTimeout(pendingAcquireTimeout)
+                .maxIdleTime(maxIdleTime)
+                .maxLifeTime(maxLifeTime)
+                .evictInBackground(maxIdleTime)
+                .build();
+    }
+
     @Bean
-    public WebClient restCountriesWebClient() {
+    public WebClient restCountriesWebClient(
+            ConnectionProvider restCountriesConnectionProvider,
+            @Value("${countries.upstream.base-url}") String baseUrl,
+            @Value("${countries.upstream.connect-timeout}") Duration connectTimeout,
+            @Value("${countries.upstream.response-timeout}") Duration responseTimeout) {
+        HttpClient http = HttpClient.create(restCountriesConnectionProvider)
+                .keepAlive(true)
+                .option(ChannelOption.SO_KEEPALIVE, true)
+                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, (int) connectTimeout.toMillis())
+                .responseTimeout(responseTimeout);
         return WebClient.builder()
-                .baseUrl("https://restcountries.com")
+                .baseUrl(baseUrl)
+                .clientConnector(new ReactorClientHttpConnector(http))
                 .build();
     }
 }
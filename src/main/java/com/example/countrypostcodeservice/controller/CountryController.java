@@ -1,28 +1,176 @@
 package com.example.countrypostcodeservice.controller;
 
+import com.example.countrypostcodeservice.dto.CountryBatchResponse;
 import com.example.countrypostcodeservice.dto.CountryInfoResponse;
+import com.example.countrypostcodeservice.dto.CountrySearchResponse;
+import com.example.countrypostcodeservice.dto.PostcodeNormalizationResponse;
+import com.example.countrypostcodeservice.dto.PostcodeValidationResponse;
+import com.example.countrypostcodeservice.service.BulkPostcodeValidationService;
+import com.example.countrypostcodeservice.service.CountryExportService;
 import com.example.countrypostcodeservice.service.CountryQueryService;
+import com.example.countrypostcodeservice.service.CountrySearch;
+import com.example.countrypostcodeservice.service.CountrySnapshot;
+import com.example.countrypostcodeservice.service.CountrySnapshots;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import reactor.core.publisher.Mono;
+
+import java.io.InputStream;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
 
 @RestController
 @RequestMapping("/countries")
 public class CountryController {
 
+    private static final String TEXT_CSV = "text/csv";
+    private static final Map<CountrySnapshot.Encoding, MediaType> ENCODING_TYPES = new EnumMap<>(CountrySnapshot.Encoding.class);
+
+    static {
+        for (CountrySnapshot.Encoding encoding : CountrySnapshot.Encoding.values()) {
+            ENCODING_TYPES.put(encoding, MediaType.parseMediaType(encoding.mediaType()));
+        }
+    }
+
     private final CountryQueryService service;
+    private final BulkPostcodeValidationService bulkValidation;
+    private final CountrySnapshots snapshots;
+    private final CountrySearch search;
+    private final CountryExportService export;
+    private final CacheControl cacheControl;
 
-    public CountryController(CountryQueryService service) {
+    public CountryController(CountryQueryService service,
+                             BulkPostcodeValidationService bulkValidation,
+                             CountrySnapshots snapshots,
+                             CountrySearch search,
+                             CountryExportService export,
+                             @Value("${countries.http.max-age}") Duration maxAge) {
         this.service = service;
+        this.bulkValidation = bulkValidation;
+        this.snapshots = snapshots;
+        this.search = search;
+        this.export = export;
+        this.cacheControl = CacheControl.maxAge(maxAge).cachePublic();
+    }
+
+    /** Get info for several country codes at once, e.g. ?codes=NL,DE,BE */
+    @GetMapping(params = "codes")
+    public CountryBatchResponse getCountries(@RequestParam List<String> codes) {
+        return service.findOrFetchAll(codes);
+    }
+
+    /**
+     * Search known countries by name, e.g. ?q=neth: case- and accent-insensitive prefix and
+     * substring matches, best first. A literal path, so it takes precedence over /{cca2}.
+     */
+    @GetMapping("/search")
+    public CountrySearchResponse search(@RequestParam String q,
+                                        @RequestParam(defaultValue = "10") int limit) {
+        List<CountryInfoResponse> countries = search.search(q, limit).stream()
+                .map(CountryInfoResponse::from)
+                .toList();
+        return new CountrySearchResponse(q, countries);
+    }
+
+    /**
+     * The whole table, streamed row by row: NDJSON, or CSV when the client accepts text/csv (and
+     * not NDJSON first); gzipped if the client accepts gzip. Last-Modified is the latest fetchedAt,
+     * and an If-Modified-Since at or after it gets a bodiless 304.
+     */
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportAll(@RequestHeader HttpHeaders headers) {
+        Instant lastModified = export.lastModified().orElse(null);
+        long ifModifiedSince = headers.getIfModifiedSince();
+        if (lastModified != null && ifModifiedSince >= 0 && lastModified.toEpochMilli() <= ifModifiedSince) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).lastModified(lastModified).build();
+        }
+
+        boolean csv = prefersCsv(headers.getAccept());
+        boolean gzip = acceptsGzip(headers.getFirst(HttpHeaders.ACCEPT_ENCODING));
+        var format = csv ? CountryExportService.Format.CSV : CountryExportService.Format.NDJSON;
+        var response = ResponseEntity.ok()
+                .contentType(csv ? MediaType.parseMediaType(TEXT_CSV) : MediaType.APPLICATION_NDJSON)
+                .varyBy(HttpHeaders.ACCEPT, HttpHeaders.ACCEPT_ENCODING);
+        if (lastModified != null) response.lastModified(lastModified);
+        if (gzip) response.header(HttpHeaders.CONTENT_ENCODING, "gzip");
+        return response.body(out -> export.export(out, format, gzip));
     }
 
-    /** Get info by country code (serves from DB, fetches if missing) */
+    /**
+     * Get info by country code (serves from cache/DB, fetches if missing; never blocks the request thread).
+     * The strong ETag is the country's content hash; a matching If-None-Match gets a bodiless 304.
+     * The body is the country's pre-serialized snapshot, written as-is: JSON by default, CBOR or
+     * Smile when Accept prefers them.
+     */
     @GetMapping("/{cca2}")
-    public ResponseEntity<CountryInfoResponse> getCountry(@PathVariable String cca2) {
-        return service.findOrFetchByCca2(cca2)
+    public Mono<ResponseEntity<byte[]>> getCountry(@PathVariable String cca2,
+                                                   @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+                                                   @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept) {
+        CountrySnapshot.Encoding encoding = negotiate(accept);
+        return service.findCountryAsync(cca2)
+                .map(snapshots::snapshotOf)
+                .map(snapshot -> {
+                    String etag = snapshot.etag(encoding);
+                    if (etagMatches(ifNoneMatch, etag)) {
+                        return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                                .eTag(etag)
+                                .cacheControl(cacheControl)
+                                .varyBy(HttpHeaders.ACCEPT)
+                                .<byte[]>build();
+                    }
+                    byte[] body = snapshot.body(encoding);
+                    return ResponseEntity.ok()
+                            .eTag(etag)
+                            .cacheControl(cacheControl)
+                            .varyBy(HttpHeaders.ACCEPT)
+                            .contentType(ENCODING_TYPES.get(encoding))
+                            .contentLength(body.length)
+                            .body(body);
+                })
+                .defaultIfEmpty(ResponseEntity.notFound().build());
+    }
+
+    /** Check a postcode against the country's postal regex */
+    @GetMapping("/{cca2}/postcodes/{code}/validate")
+    public ResponseEntity<PostcodeValidationResponse> validatePostcode(@PathVariable String cca2,
+                                                                       @PathVariable String code) {
+        return service.validatePostcode(cca2, code)
                 .map(ResponseEntity::ok)
                 .orElseGet(() -> ResponseEntity.notFound().build());
     }
 
+    /** Clean up a postcode, lay it out in the country's postal format and validate the result */
+    @GetMapping("/{cca2}/postcodes/{raw}/normalize")
+    public ResponseEntity<PostcodeNormalizationResponse> normalizePostcode(@PathVariable String cca2,
+                                                                           @PathVariable String raw) {
+        return service.normalizePostcode(cca2, raw)
+                .map(ResponseEntity::ok)
+                .orElseGet(() -> ResponseEntity.notFound().build());
+    }
+
+    /** Bulk-validate (cca2, postcode) pairs: NDJSON or CSV lines in, one result line out per input line */
+    @PostMapping(path = "/postcodes/validate", consumes = {MediaType.APPLICATION_NDJSON_VALUE, TEXT_CSV})
+    public ResponseEntity<StreamingResponseBody> validatePostcodes(@RequestHeader(HttpHeaders.CONTENT_TYPE) MediaType contentType,
+                                                                   InputStream body) {
+        boolean csv = contentType.isCompatibleWith(MediaType.parseMediaType(TEXT_CSV));
+        var format = csv ? BulkPostcodeValidationService.Format.CSV : BulkPostcodeValidationService.Format.NDJSON;
+        return ResponseEntity.ok()
+                .contentType(csv ? MediaType.parseMediaType(TEXT_CSV) : MediaType.APPLICATION_NDJSON)
+                .body(out -> bulkValidation.validate(body, out, format));
+    }
+
     /** Add/refresh from public API and save to DB */
     @PostMapping("/{cca2}")
     public ResponseEntity<CountryInfoResponse> addOrRefresh(@PathVariable String cca2) {
@@ -30,4 +178,66 @@ public class CountryController {
                 .map(ResponseEntity::ok)
                 .orElseGet(() -> ResponseEntity.notFound().build());
     }
+
+    /** First of JSON, CBOR and Smile in Accept order (by quality); JSON for wildcards, anything else or no Accept. */
+    private static CountrySnapshot.Encoding negotiate(String accept) {
+        if (accept == null || accept.isBlank() || accept.equals(MediaType.APPLICATION_JSON_VALUE)) {
+            return CountrySnapshot.Encoding.JSON;
+        }
+        List<MediaType> sorted;
+        try {
+            sorted = new ArrayList<>(MediaType.parseMediaTypes(accept));
+        } catch (InvalidMediaTypeException e) {
+            return CountrySnapshot.Encoding.JSON;
+        }
+        sorted.sort(Comparator.comparingDouble(MediaType::getQualityValue).reversed());
+        for (MediaType type : sorted) {
+            if (type.getQualityValue() == 0) continue;
+            if (type.isWildcardType() || type.isWildcardSubtype()) return CountrySnapshot.Encoding.JSON;
+            for (var entry : ENCODING_TYPES.entrySet()) {
+                if (type.isCompatibleWith(entry.getValue())) return entry.getKey();
+            }
+        }
+        return CountrySnapshot.Encoding.JSON;
+    }
+
+    /** First of NDJSON and CSV in Accept order (by quality); NDJSON if neither is named. */
+    private static boolean prefersCsv(List<MediaType> accept) {
+        List<MediaType> sorted = new ArrayList<>(accept);
+        sorted.sort(Comparator.comparingDouble(MediaType::getQualityValue).reversed());
+        for (MediaType type : sorted) {
+            if (type.getQualityValue() == 0 || type.isWildcardType() || type.isWildcardSubtype()) continue;
+            if (type.isCompatibleWith(MediaType.APPLICATION_NDJSON)) return false;
+            if (type.isCompatibleWith(MediaType.parseMediaType(TEXT_CSV))) return true;
+        }
+        return false;
+    }
+
+    /** True if Accept-Encoding lists gzip (or *) without q=0. */
+    private static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) return false;
+        for (String candidate : acceptEncoding.split(",")) {
+            String[] parts = candidate.split(";");
+            String coding = parts[0].trim();
+            if (!coding.equalsIgnoreCase("gzip") && !coding.equals("*")) continue;
+            boolean refused = false;
+            for (int i = 1; i < parts.length; i++) {
+                String param = parts[i].trim();
+                if (param.startsWith("q=")) refused = param.substring(2).matches("0(\\.0*)?");
+            }
+            if (!refused) return true;
+        }
+        return false;
+    }
+
+    /** If-None-Match uses weak comparison: W/ prefixes are ignored, and * matches anything. */
+    private static boolean etagMatches(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null) return false;
+        for (String candidate : ifNoneMatch.split(",")) {
+            String tag = candidate.trim();
+            if (tag.startsWith("W/")) tag = tag.substring(2);
+            if (tag.equals("*") || tag.equals(etag)) return true;
+        }
+        return false;
+    }
 }
@@ -0,0 +1,22 @@
+package com.example.countrypostcodeservice.controller;
+
+import com.example.countrypostcodeservice.dto.PostcodeCountriesResponse;
+import com.example.countrypostcodeservice.service.PostcodeCountryLookup;
+import org.springframework.web.bind.annotation.*;
+
+@RestController
+@RequestMapping("/postcodes")
+public class PostcodeController {
+
+    private final PostcodeCountryLookup lookup;
+
+    public PostcodeController(PostcodeCountryLookup lookup) {
+        this.lookup = lookup;
+    }
+
+    /** Which known countries' postal regex accepts this postcode (e.g. /postcodes/1234AB/countries → NL) */
+    @GetMapping("/{code}/countries")
+    public PostcodeCountriesResponse countriesFor(@PathVariable String code) {
+        return new PostcodeCountriesResponse(code, lookup.countriesFor(code));
+    }
+}
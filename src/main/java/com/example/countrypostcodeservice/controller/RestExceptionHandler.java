@@ -1,6 +1,7 @@
 package com.example.countrypostcodeservice.controller;
 
 import com.example.countrypostcodeservice.exception.CountryImportException;
+import com.example.countrypostcodeservice.exception.UpstreamUnavailableException;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.ExceptionHandler;
@@ -11,6 +12,15 @@ import java.util.Map;
 @RestControllerAdvice
 public class RestExceptionHandler {
 
+    @ExceptionHandler(UpstreamUnavailableException.class)
+    public ResponseEntity<Map<String, Object>> handleUnavailable(UpstreamUnavailableException ex) {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .body(Map.of(
+                        "error", "Upstream unavailable",
+                        "message", ex.getMessage()
+                ));
+    }
+
     @ExceptionHandler(CountryImportException.class)
     public ResponseEntity<Map<String, Object>> handleImport(CountryImportException ex) {
         return ResponseEntity.status(HttpStatus.BAD_GATEWAY)
@@ -0,0 +1,24 @@
+package com.example.countrypostcodeservice.controller;
+
+import com.example.countrypostcodeservice.dto.UpstreamStatus;
+import com.example.countrypostcodeservice.service.UpstreamGuard;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+/** GET /actuator/upstream: circuit breaker state and bulkhead occupancy for REST Countries. */
+@Component
+@Endpoint(id = "upstream")
+public class UpstreamEndpoint {
+
+    private final UpstreamGuard guard;
+
+    public UpstreamEndpoint(UpstreamGuard guard) {
+        this.guard = guard;
+    }
+
+    @ReadOperation
+    public UpstreamStatus status() {
+        return guard.status();
+    }
+}
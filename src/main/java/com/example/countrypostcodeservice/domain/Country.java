@@ -2,14 +2,31 @@ package com.example.countrypostcodeservice.domain;
 
 import jakarta.persistence.*;
 
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.util.HexFormat;
+
 @Entity
-@Table(name = "countries")
+@Table(name = "countries", indexes = {
+        @Index(name = "idx_countries_cca3", columnList = "cca3"),
+        @Index(name = "idx_countries_ccn3", columnList = "ccn3")
+})
 public class Country {
 
     @Id
     @Column(length = 2, nullable = false, updatable = false)
     private String cca2;
 
+    /** ISO 3166-1 alpha-3 code, e.g. NLD. */
+    @Column(length = 3)
+    private String cca3;
+
+    /** ISO 3166-1 numeric code as three digits, e.g. 528. */
+    @Column(length = 3)
+    private String ccn3;
+
     @Column(nullable = false)
     private String commonName;
 
@@ -19,27 +36,116 @@ public class Country {
     @Column
     private String postalRegex;
 
+    /** When this row was last fetched from REST Countries. */
+    @Column
+    private Instant fetchedAt;
+
+    /** Hash of the country's content (not of fetchedAt), computed on first use. */
+    @Transient
+    private volatile String contentHash;
+
+    /** Compiled {@link #postalRegex}, built on first use and kept for the lifetime of this instance. */
+    @Transient
+    private volatile PostalCodeMatcher postalMatcher;
+
+    /** Compiled {@link #postalFormat}, built on first use like {@link #postalMatcher}. */
+    @Transient
+    private volatile PostcodeNormalizer postcodeNormalizer;
+
     protected Country() { }
 
     public Country(String cca2, String commonName, String postalFormat, String postalRegex) {
+        this(cca2, commonName, postalFormat, postalRegex, Instant.now());
+    }
+
+    public Country(String cca2, String commonName, String postalFormat, String postalRegex, Instant fetchedAt) {
+        this(cca2, null, null, commonName, postalFormat, postalRegex, fetchedAt);
+    }
+
+    public Country(String cca2, String cca3, String ccn3, String commonName,
+                   String postalFormat, String postalRegex, Instant fetchedAt) {
         if (commonName == null) {
             throw new IllegalArgumentException("commonName cannot be null");
         }
         this.cca2 = cca2 != null ? cca2.toUpperCase() : null;
+        this.cca3 = cca3 != null ? cca3.toUpperCase() : null;
+        this.ccn3 = ccn3;
         this.commonName = commonName;
         this.postalFormat = postalFormat;
         this.postalRegex = postalRegex;
+        this.fetchedAt = fetchedAt;
+    }
+
+    /**
+     * Same country with a new fetch time, e.g. after a refresh found the content unchanged. The
+     * content hash and compiled postcode matchers carry over, since they don't depend on it.
+     */
+    public Country withFetchedAt(Instant fetchedAt) {
+        Country renewed = new Country(cca2, cca3, ccn3, commonName, postalFormat, postalRegex, fetchedAt);
+        renewed.contentHash = contentHash;
+        renewed.postalMatcher = postalMatcher;
+        renewed.postcodeNormalizer = postcodeNormalizer;
+        return renewed;
     }
 
     @PrePersist @PreUpdate
     void normalize() {
         if (cca2 != null) cca2 = cca2.toUpperCase();
+        if (cca3 != null) cca3 = cca3.toUpperCase();
         if (commonName == null) throw new IllegalStateException("commonName cannot be null");
     }
 
     public String getCca2() { return cca2; }
+    public String getCca3() { return cca3; }
+    public String getCcn3() { return ccn3; }
     public String getCommonName() { return commonName; }
     public String getPostalFormat() { return postalFormat; }
     public String getPostalRegex() { return postalRegex; }
+    public Instant getFetchedAt() { return fetchedAt; }
+
+    /**
+     * Hex SHA-256 (first 128 bits) over the codes, name, format and regex. Two rows with the same
+     * content have the same hash regardless of when they were fetched.
+     */
+    public String contentHash() {
+        String h = contentHash;
+        if (h == null) {
+            String content = cca2 + '\u0000' + commonName + '\u0000' + postalFormat + '\u0000' + postalRegex
+                    + '\u0000' + cca3 + '\u0000' + ccn3;
+            try {
+                byte[] digest = MessageDigest.getInstance("SHA-256").digest(content.getBytes(StandardCharsets.UTF_8));
+                h = HexFormat.of().formatHex(digest, 0, 16);
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException("SHA-256 not available", e);
+            }
+            contentHash = h;
+        }
+        return h;
+    }
+
+    /** True if the postcode matches this country's postal regex; false if it has none (or an invalid one). */
+    public boolean matchesPostalCode(String postcode) {
+        return postalMatcher().matches(postcode);
+    }
+
+    /** Matcher for {@link #postalRegex}: a compiled DFA for simple shapes, {@link java.util.regex.Pattern} otherwise. */
+    public PostalCodeMatcher postalMatcher() {
+        PostalCodeMatcher m = postalMatcher;
+        if (m == null) {
+            m = PostalCodeMatcher.forRegex(postalRegex);
+            postalMatcher = m;
+        }
+        return m;
+    }
+
+    /** Normalizer that lays postcodes out in {@link #postalFormat}. */
+    public PostcodeNormalizer postcodeNormalizer() {
+        PostcodeNormalizer n = postcodeNormalizer;
+        if (n == null) {
+            n = PostcodeNormalizer.forFormat(postalFormat);
+            postcodeNormalizer = n;
+        }
+        return n;
+    }
 
 }
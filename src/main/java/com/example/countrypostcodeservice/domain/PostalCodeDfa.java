@@ -0,0 +1,83 @@
+package com.example.countrypostcodeservice.domain;
+
+import java.util.Arrays;
+
+/**
+ * Deterministic automaton over ASCII built by {@link PostalCodeDfaCompiler}. State 0 is the
+ * start state; {@code next[state * 128 + c]} is the following state or -1 for "no match".
+ * Any non-ASCII character rejects, which is exact because the compiler only accepts regexes
+ * whose character sets are ASCII.
+ */
+final class PostalCodeDfa implements PostalCodeMatcher {
+
+    static final int ALPHABET = 128;
+
+    private final int[] next;
+    private final boolean[] accepting;
+
+    PostalCodeDfa(int[] next, boolean[] accepting) {
+        this.next = next;
+        this.accepting = accepting;
+    }
+
+    @Override
+    public boolean matches(CharSequence input) {
+        int state = 0;
+        for (int i = 0, n = input.length(); i < n; i++) {
+            char c = input.charAt(i);
+            if (c >= ALPHABET) {
+                return false;
+            }
+            state = next[state * ALPHABET + c];
+            if (state < 0) {
+                return false;
+            }
+        }
+        return accepting[state];
+    }
+
+    @Override
+    public boolean isCompiled() {
+        return true;
+    }
+
+    /** Walks the automaton level by level: bit k is set if some accepting state is reachable in k steps. */
+    @Override
+    public long lengthMask() {
+        int states = accepting.length;
+        boolean[] current = new boolean[states];
+        boolean[] following = new boolean[states];
+        current[0] = true;
+        long mask = 0;
+        for (int length = 0; length < 63; length++) {
+            boolean any = false;
+            for (int s = 0; s < states; s++) {
+                if (!current[s]) continue;
+                any = true;
+                if (accepting[s]) mask |= 1L << length;
+                for (int c = 0; c < ALPHABET; c++) {
+                    int t = next[s * ALPHABET + c];
+                    if (t >= 0) following[t] = true;
+                }
+            }
+            if (!any) return mask;
+            boolean[] swap = current;
+            current = following;
+            following = swap;
+            Arrays.fill(following, false);
+        }
+        for (boolean live : current) {
+            if (live) return mask | 1L << 63;
+        }
+        return mask;
+    }
+
+    @Override
+    public boolean canStartWith(char c) {
+        return c < ALPHABET && next[c] >= 0;
+    }
+
+    int stateCount() {
+        return accepting.length;
+    }
+}
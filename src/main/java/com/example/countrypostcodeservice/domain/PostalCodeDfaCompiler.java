@@ -0,0 +1,447 @@
+package com.example.countrypostcodeservice.domain;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compiles the regular subset of {@code java.util.regex} that postcode regexes use into a
+ * {@link PostalCodeDfa}: regex → syntax tree → Thompson NFA → subset construction.
+ *
+ * <p>Supported: ASCII literals and escaped metacharacters, {@code \d \s \w \t \n \r \f},
+ * non-negated classes with ranges, capturing / non-capturing / named groups, alternation,
+ * {@code ? * + {n} {n,} {n,m}} (greedy or reluctant; both accept the same full matches),
+ * {@code ^} and a trailing {@code $}. Everything else (negated classes, {@code .}, inline
+ * flags, lookaround, back-references, possessive quantifiers, non-ASCII literals) returns
+ * {@code null} so the caller falls back to {@link java.util.regex.Pattern}. Callers must have
+ * checked that the regex compiles; this parser is not a validator.
+ */
+final class PostalCodeDfaCompiler {
+
+    /** Beyond these the regex is not a simple shape; leave it to java.util.regex. */
+    static final int MAX_NFA_STATES = 4096;
+    static final int MAX_DFA_STATES = 256;
+
+    private static final int UNBOUNDED = -1;
+    private static final String METACHARACTERS = "\\^$.|?*+()[]{}";
+
+    private PostalCodeDfaCompiler() { }
+
+    /** DFA with the same full-match behaviour as the regex, or null if the regex is outside the subset. */
+    static PostalCodeDfa compile(String regex) {
+        try {
+            Node ast = new Parser(regex).parse();
+            Nfa nfa = new Nfa();
+            Frag frag = nfa.build(ast);
+            State match = nfa.state(Kind.MATCH);
+            frag.end.eps.add(match);
+            nfa.checkEndAnchors();
+            return nfa.determinize(frag.start);
+        } catch (Unsupported | IndexOutOfBoundsException e) {
+            return null;
+        }
+    }
+
+    /** Regex equivalent of a REST Countries {@code postalFormat} ({@code #} digit, {@code @} A–Z). */
+    static String formatToRegex(String format) {
+        StringBuilder sb = new StringBuilder(format.length() * 2);
+        for (int i = 0; i < format.length(); i++) {
+            char c = format.charAt(i);
+            switch (c) {
+                case '#' -> sb.append("\\d");
+                case '@' -> sb.append("[A-Z]");
+                case '|' -> sb.append('|');
+                default -> {
+                    if (METACHARACTERS.indexOf(c) >= 0) sb.append('\\');
+                    sb.append(c);
+                }
+            }
+        }
+        return sb.toString();
+    }
+
+    // ---- syntax tree ----
+
+    private sealed interface Node permits Chars, Anchor, Seq, Alt, Repeat { }
+
+    /** One character out of an ASCII set: bits 0–63 in {@code lo}, 64–127 in {@code hi}. */
+    private record Chars(long lo, long hi) implements Node {
+        static Chars of(char c) {
+            return c < 64 ? new Chars(1L << c, 0) : new Chars(0, 1L << (c - 64));
+        }
+
+        static Chars range(char from, char to) {
+            long lo = 0, hi = 0;
+            for (char c = from; c <= to; c++) {
+                if (c < 64) lo |= 1L << c; else hi |= 1L << (c - 64);
+            }
+            return new Chars(lo, hi);
+        }
+
+        Chars or(Chars other) {
+            return new Chars(lo | other.lo, hi | other.hi);
+        }
+
+        boolean contains(int c) {
+            return c < 64 ? (lo & (1L << c)) != 0 : (hi & (1L << (c - 64))) != 0;
+        }
+    }
+
+    private static final Chars DIGITS = Chars.range('0', '9');
+    private static final Chars SPACES = Chars.of(' ').or(Chars.range('\t', '\r'));
+    private static final Chars WORD = DIGITS.or(Chars.range('A', 'Z')).or(Chars.range('a', 'z')).or(Chars.of('_'));
+
+    private record Anchor(boolean begin) implements Node { }
+    private record Seq(List<Node> items) implements Node { }
+    private record Alt(List<Node> alternatives) implements Node { }
+    private record Repeat(Node node, int min, int max) implements Node { }
+
+    /** Thrown (without a stack trace) when the regex leaves the supported subset. */
+    private static final class Unsupported extends RuntimeException {
+        static final Unsupported INSTANCE = new Unsupported();
+
+        private Unsupported() {
+            super(null, null, false, false);
+        }
+    }
+
+    private static final class Parser {
+        private final String s;
+        private int pos;
+
+        Parser(String s) {
+            this.s = s;
+        }
+
+        Node parse() {
+            Node node = alternation();
+            if (pos != s.length()) throw Unsupported.INSTANCE;
+            return node;
+        }
+
+        private Node alternation() {
+            List<Node> alternatives = new ArrayList<>();
+            alternatives.add(sequence());
+            while (pos < s.length() && s.charAt(pos) == '|') {
+                pos++;
+                alternatives.add(sequence());
+            }
+            return alternatives.size() == 1 ? alternatives.get(0) : new Alt(alternatives);
+        }
+
+        private Node sequence() {
+            List<Node> items = new ArrayList<>();
+            while (pos < s.length() && s.charAt(pos) != '|' && s.charAt(pos) != ')') {
+                items.add(quantified());
+            }
+            return items.size() == 1 ? items.get(0) : new Seq(items);
+        }
+
+        private Node quantified() {
+            Node atom = atom();
+            if (pos >= s.length()) return atom;
+            int min, max;
+            switch (s.charAt(pos)) {
+                case '?' -> { min = 0; max = 1; pos++; }
+                case '*' -> { min = 0; max = UNBOUNDED; pos++; }
+                case '+' -> { min = 1; max = UNBOUNDED; pos++; }
+                case '{' -> {
+                    pos++;
+                    min = number();
+                    max = min;
+                    if (s.charAt(pos) == ',') {
+                        pos++;
+                        max = s.charAt(pos) == '}' ? UNBOUNDED : number();
+                    }
+                    expect('}');
+                }
+                default -> { return atom; }
+            }
+            if (atom instanceof Anchor) throw Unsupported.INSTANCE;
+            if (pos < s.length() && s.charAt(pos) == '+') throw Unsupported.INSTANCE; // possessive
+            if (pos < s.length() && s.charAt(pos) == '?') pos++; // reluctant: same full matches
+            if (pos < s.length() && "?*+{".indexOf(s.charAt(pos)) >= 0) throw Unsupported.INSTANCE;
+            return new Repeat(atom, min, max);
+        }
+
+        private int number() {
+            int start = pos;
+            while (pos < s.length() && Character.isDigit(s.charAt(pos))) pos++;
+            if (pos == start || pos - start > 3) throw Unsupported.INSTANCE;
+            return Integer.parseInt(s, start, pos, 10);
+        }
+
+        private void expect(char c) {
+            if (pos >= s.length() || s.charAt(pos) != c) throw Unsupported.INSTANCE;
+            pos++;
+        }
+
+        private Node atom() {
+            char c = s.charAt(pos++);
+            return switch (c) {
+                case '(' -> group();
+                case '[' -> charClass();
+                case '\\' -> escape();
+                case '^' -> new Anchor(true);
+                case '$' -> new Anchor(false);
+                case '.', '*', '+', '?', '{' -> throw Unsupported.INSTANCE;
+                default -> literal(c);
+            };
+        }
+
+        private Node group() {
+            if (pos < s.length() && s.charAt(pos) == '?') {
+                pos++;
+                if (pos < s.length() && s.charAt(pos) == ':') {
+                    pos++;
+                } else if (pos + 1 < s.length() && s.charAt(pos) == '<' && Character.isLetter(s.charAt(pos + 1))) {
+                    int close = s.indexOf('>', pos);
+                    if (close < 0) throw Unsupported.INSTANCE;
+                    pos = close + 1;
+                } else {
+                    throw Unsupported.INSTANCE; // flags, lookaround, atomic groups
+                }
+            }
+            Node body = alternation();
+            expect(')');
+            return body;
+        }
+
+        private Chars charClass() {
+            if (pos < s.length() && (s.charAt(pos) == '^' || s.charAt(pos) == ']')) throw Unsupported.INSTANCE;
+            Chars set = new Chars(0, 0);
+            while (true) {
+                if (pos >= s.length()) throw Unsupported.INSTANCE;
+                char c = s.charAt(pos++);
+                if (c == ']') return set;
+                if (c == '[' || (c == '&' && pos < s.length() && s.charAt(pos) == '&')) throw Unsupported.INSTANCE;
+                Chars item = c == '\\' ? escape() : literal(c);
+                boolean single = Long.bitCount(item.lo) + Long.bitCount(item.hi) == 1;
+                if (pos + 1 < s.length() && s.charAt(pos) == '-' && s.charAt(pos + 1) != ']') {
+                    if (!single || c == '\\' && Character.isLetter(s.charAt(pos - 1))) throw Unsupported.INSTANCE;
+                    pos++;
+                    char to = s.charAt(pos++);
+                    if (to == '\\') {
+                        char escaped = s.charAt(pos++);
+                        if (Character.isLetterOrDigit(escaped)) throw Unsupported.INSTANCE;
+                        to = escaped;
+                    }
+                    if (to >= PostalCodeDfa.ALPHABET || to == '[') throw Unsupported.INSTANCE;
+                    char from = (char) (item.lo != 0 ? Long.numberOfTrailingZeros(item.lo) : 64 + Long.numberOfTrailingZeros(item.hi));
+                    if (to < from) throw Unsupported.INSTANCE;
+                    item = Chars.range(from, to);
+                }
+                set = set.or(item);
+            }
+        }
+
+        private Chars escape() {
+            if (pos >= s.length()) throw Unsupported.INSTANCE;
+            char c = s.charAt(pos++);
+            return switch (c) {
+                case 'd' -> DIGITS;
+                case 's' -> SPACES;
+                case 'w' -> WORD;
+                case 't' -> Chars.of('\t');
+                case 'n' -> Chars.of('\n');
+                case 'r' -> Chars.of('\r');
+                case 'f' -> Chars.of('\f');
+                default -> {
+                    // \D, \b, \p{..}, \Q..\E, \x.., back-references and the like
+                    if (Character.isLetterOrDigit(c)) throw Unsupported.INSTANCE;
+                    yield literal(c);
+                }
+            };
+        }
+
+        private static Chars literal(char c) {
+            if (c >= PostalCodeDfa.ALPHABET) throw Unsupported.INSTANCE;
+            return Chars.of(c);
+        }
+    }
+
+    // ---- automata ----
+
+    private enum Kind { EPSILON, CHARS, BEGIN, END, MATCH }
+
+    private static final class State {
+        final int id;
+        final Kind kind;
+        final List<State> eps = new ArrayList<>(2);
+        Chars chars;
+        State out;
+
+        State(int id, Kind kind) {
+            this.id = id;
+            this.kind = kind;
+        }
+    }
+
+    private record Frag(State start, State end) { }
+
+    private static final class Nfa {
+        private final List<State> states = new ArrayList<>();
+
+        State state(Kind kind) {
+            if (states.size() >= MAX_NFA_STATES) throw Unsupported.INSTANCE;
+            State state = new State(states.size(), kind);
+            states.add(state);
+            return state;
+        }
+
+        Frag build(Node node) {
+            return switch (node) {
+                case Chars chars -> {
+                    State start = state(Kind.CHARS);
+                    State end = state(Kind.EPSILON);
+                    start.chars = chars;
+                    start.out = end;
+                    yield new Frag(start, end);
+                }
+                case Anchor anchor -> {
+                    State start = state(anchor.begin() ? Kind.BEGIN : Kind.END);
+                    State end = state(Kind.EPSILON);
+                    start.eps.add(end);
+                    yield new Frag(start, end);
+                }
+                case Seq seq -> {
+                    State start = state(Kind.EPSILON);
+                    State end = start;
+                    for (Node item : seq.items()) {
+                        end = append(end, item);
+                    }
+                    yield new Frag(start, end);
+                }
+                case Alt alt -> {
+                    State start = state(Kind.EPSILON);
+                    State end = state(Kind.EPSILON);
+                    for (Node alternative : alt.alternatives()) {
+                        Frag frag = build(alternative);
+                        start.eps.add(frag.start);
+                        frag.end.eps.add(end);
+                    }
+                    yield new Frag(start, end);
+                }
+                case Repeat repeat -> {
+                    State start = state(Kind.EPSILON);
+                    State end = start;
+                    for (int i = 0; i < repeat.min(); i++) {
+                        end = append(end, repeat.node());
+                    }
+                    if (repeat.max() == UNBOUNDED) {
+                        State loop = state(Kind.EPSILON);
+                        Frag body = build(repeat.node());
+                        end.eps.add(loop);
+                        loop.eps.add(body.start);
+                        body.end.eps.add(loop);
+                        yield new Frag(start, loop);
+                    }
+                    State exit = state(Kind.EPSILON);
+                    for (int i = repeat.min(); i < repeat.max(); i++) {
+                        end.eps.add(exit);
+                        end = append(end, repeat.node());
+                    }
+                    end.eps.add(exit);
+                    yield new Frag(start, exit);
+                }
+            };
+        }
+
+        private State append(State end, Node node) {
+            Frag frag = build(node);
+            end.eps.add(frag.start);
+            return frag.end;
+        }
+
+        /**
+         * {@code $} also matches before a final line terminator, which the DFA doesn't model. That
+         * only matters if input can still be consumed after it, so reject regexes where it can
+         * (or where a {@code ^} follows it).
+         */
+        void checkEndAnchors() {
+            for (State state : states) {
+                if (state.kind != Kind.END) continue;
+                BitSet after = closure(state.eps, true, true);
+                for (int i = after.nextSetBit(0); i >= 0; i = after.nextSetBit(i + 1)) {
+                    Kind kind = states.get(i).kind;
+                    if (kind == Kind.CHARS || kind == Kind.BEGIN) throw Unsupported.INSTANCE;
+                }
+            }
+        }
+
+        /**
+         * States reachable through ε-moves. {@code ^} is only passable at the start of input;
+         * {@code $} only at the end, i.e. when deciding acceptance.
+         */
+        private BitSet closure(List<State> seeds, boolean atStart, boolean atEnd) {
+            BitSet seen = new BitSet(states.size());
+            ArrayDeque<State> stack = new ArrayDeque<>(seeds);
+            while (!stack.isEmpty()) {
+                State state = stack.pop();
+                if (seen.get(state.id)) continue;
+                seen.set(state.id);
+                boolean passable = switch (state.kind) {
+                    case EPSILON -> true;
+                    case BEGIN -> atStart;
+                    case END -> atEnd;
+                    case CHARS, MATCH -> false;
+                };
+                if (passable) stack.addAll(state.eps);
+            }
+            return seen;
+        }
+
+        private List<State> members(BitSet set) {
+            List<State> members = new ArrayList<>(set.cardinality());
+            for (int i = set.nextSetBit(0); i >= 0; i = set.nextSetBit(i + 1)) {
+                members.add(states.get(i));
+            }
+            return members;
+        }
+
+        PostalCodeDfa determinize(State start) {
+            Map<BitSet, Integer> index = new HashMap<>();
+            List<BitSet> dfaStates = new ArrayList<>();
+            BitSet initial = closure(List.of(start), true, false);
+            index.put(initial, 0);
+            dfaStates.add(initial);
+
+            int[] next = new int[MAX_DFA_STATES * PostalCodeDfa.ALPHABET];
+            for (int d = 0; d < dfaStates.size(); d++) {
+                List<State> members = members(dfaStates.get(d));
+                for (int c = 0; c < PostalCodeDfa.ALPHABET; c++) {
+                    List<State> moved = new ArrayList<>();
+                    for (State state : members) {
+                        if (state.kind == Kind.CHARS && state.chars.contains(c)) moved.add(state.out);
+                    }
+                    if (moved.isEmpty()) {
+                        next[d * PostalCodeDfa.ALPHABET + c] = -1;
+                        continue;
+                    }
+                    BitSet target = closure(moved, false, false);
+                    Integer t = index.get(target);
+                    if (t == null) {
+                        if (dfaStates.size() >= MAX_DFA_STATES) throw Unsupported.INSTANCE;
+                        t = dfaStates.size();
+                        index.put(target, t);
+                        dfaStates.add(target);
+                    }
+                    next[d * PostalCodeDfa.ALPHABET + c] = t;
+                }
+            }
+
+            boolean[] accepting = new boolean[dfaStates.size()];
+            for (int d = 0; d < accepting.length; d++) {
+                BitSet reach = closure(members(dfaStates.get(d)), false, true);
+                for (int i = reach.nextSetBit(0); i >= 0 && !accepting[d]; i = reach.nextSetBit(i + 1)) {
+                    accepting[d] = states.get(i).kind == Kind.MATCH;
+                }
+            }
+            return new PostalCodeDfa(Arrays.copyOf(next, accepting.length * PostalCodeDfa.ALPHABET), accepting);
+        }
+    }
+}
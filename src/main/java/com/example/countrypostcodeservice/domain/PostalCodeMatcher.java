@@ -0,0 +1,83 @@
+package com.example.countrypostcodeservice.domain;
+
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+/**
+ * Full-match test for a postcode shape. Built from a country's {@code postalRegex} or
+ * {@code postalFormat}: shapes made of literals, character classes, groups, alternation and
+ * bounded repetition (which is every upstream shape we have seen) compile to a table-driven DFA
+ * that runs in one pass without allocating; anything else falls back to {@link Pattern}.
+ */
+@FunctionalInterface
+public interface PostalCodeMatcher {
+
+    /** Matches nothing; stands in for a missing or invalid regex. */
+    PostalCodeMatcher NEVER = new PostalCodeMatcher() {
+        @Override
+        public boolean matches(CharSequence input) {
+            return false;
+        }
+
+        @Override
+        public long lengthMask() {
+            return 0L;
+        }
+
+        @Override
+        public boolean canStartWith(char c) {
+            return false;
+        }
+    };
+
+    /** True if the whole input has this shape (same semantics as {@link java.util.regex.Matcher#matches()}). */
+    boolean matches(CharSequence input);
+
+    /** True if this matcher runs on a compiled table rather than on {@code java.util.regex}. */
+    default boolean isCompiled() {
+        return false;
+    }
+
+    /**
+     * Input lengths that can match, for prefiltering: bit {@code k} (k &lt; 63) for length k, bit
+     * 63 for any length of 63 or more. A superset; matchers that can't tell return all bits.
+     */
+    default long lengthMask() {
+        return -1L;
+    }
+
+    /** False only if no matching input starts with {@code c}, for prefiltering. */
+    default boolean canStartWith(char c) {
+        return true;
+    }
+
+    /**
+     * Matcher with exactly the semantics of {@code Pattern.compile(regex).matcher(input).matches()};
+     * {@link #NEVER} if the regex is null or doesn't compile.
+     */
+    static PostalCodeMatcher forRegex(String regex) {
+        if (regex == null) {
+            return NEVER;
+        }
+        Pattern pattern;
+        try {
+            pattern = Pattern.compile(regex);
+        } catch (PatternSyntaxException e) {
+            return NEVER;
+        }
+        PostalCodeDfa dfa = PostalCodeDfaCompiler.compile(regex);
+        return dfa != null ? dfa : input -> pattern.matcher(input).matches();
+    }
+
+    /**
+     * Matcher for a REST Countries {@code postalFormat}: {@code #} is a digit, {@code @} an
+     * upper-case letter, {@code |} separates alternative shapes and anything else is literal.
+     * {@link #NEVER} if the format is null or blank.
+     */
+    static PostalCodeMatcher forFormat(String format) {
+        if (format == null || format.isBlank()) {
+            return NEVER;
+        }
+        return forRegex(PostalCodeDfaCompiler.formatToRegex(format));
+    }
+}
@@ -0,0 +1,136 @@
+package com.example.countrypostcodeservice.domain;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Rewrites user-typed postcodes into a country's {@code postalFormat}: {@code " 1234-ab "} becomes
+ * {@code "1234 AB"} for {@code "#### @@"}. Input is first reduced to its upper-cased letters and
+ * digits; that compact form is then poured into the first format alternative whose slots it
+ * fits, copying separators from the format. Alphanumeric literals in the format (the
+ * {@code SE-} of {@code "SE-### ##"}) may be typed or left out.
+ *
+ * <p>The format is parsed once into per-alternative slot tables; normalizing a postcode
+ * allocates one scratch array and the result strings.
+ */
+public final class PostcodeNormalizer {
+
+    /** Normalizer for a country without a usable format: only compacts. */
+    public static final PostcodeNormalizer COMPACT_ONLY = new PostcodeNormalizer(List.of());
+
+    private static final byte SEPARATOR = 0, FIXED = 1, DIGIT = 2, LETTER = 3;
+
+    /** One {@code |}-separated alternative of a format. */
+    private record Shape(char[] template, byte[] kinds, int fixed, int placeholders) { }
+
+    private final List<Shape> shapes;
+
+    private PostcodeNormalizer(List<Shape> shapes) {
+        this.shapes = shapes;
+    }
+
+    /** Compiles a {@code postalFormat}: {@code #} digit, {@code @} letter, {@code |} alternatives, anything else literal. */
+    public static PostcodeNormalizer forFormat(String format) {
+        if (format == null || format.isBlank()) {
+            return COMPACT_ONLY;
+        }
+        List<Shape> shapes = new ArrayList<>();
+        for (String alternative : format.split("\\|")) {
+            char[] template = alternative.trim().toCharArray();
+            byte[] kinds = new byte[template.length];
+            int fixed = 0, placeholders = 0;
+            for (int i = 0; i < template.length; i++) {
+                char c = template[i];
+                if (c == '#') {
+                    kinds[i] = DIGIT;
+                    placeholders++;
+                } else if (c == '@') {
+                    kinds[i] = LETTER;
+                    placeholders++;
+                } else if (Character.isLetterOrDigit(c)) {
+                    kinds[i] = FIXED;
+                    template[i] = Character.toUpperCase(c);
+                    fixed++;
+                } else {
+                    kinds[i] = SEPARATOR;
+                }
+            }
+            if (fixed + placeholders > 0) {
+                shapes.add(new Shape(template, kinds, fixed, placeholders));
+            }
+        }
+        return shapes.isEmpty() ? COMPACT_ONLY : new PostcodeNormalizer(List.copyOf(shapes));
+    }
+
+    /** The input's letters and digits, upper-cased, with everything else dropped. */
+    public static String compact(CharSequence raw) {
+        char[] buf = new char[raw.length()];
+        int n = 0;
+        for (int i = 0; i < raw.length(); i++) {
+            char c = raw.charAt(i);
+            if (Character.isLetterOrDigit(c)) {
+                buf[n++] = Character.toUpperCase(c);
+            }
+        }
+        return new String(buf, 0, n);
+    }
+
+    /**
+     * The compact postcode laid out in the first format alternative it fits, or null if it fits
+     * none. A postcode fits if it fills every slot (fixed literals included), or every {@code #}
+     * / {@code @} slot with the fixed literals left for the format to supply.
+     */
+    public String format(String compact) {
+        int n = compact.length();
+        if (n == 0) {
+            return null;
+        }
+        for (Shape shape : shapes) {
+            String formatted = null;
+            if (n == shape.fixed + shape.placeholders) {
+                formatted = fill(shape, compact, true);
+            }
+            if (formatted == null && shape.fixed > 0 && n == shape.placeholders) {
+                formatted = fill(shape, compact, false);
+            }
+            if (formatted != null) {
+                return formatted;
+            }
+        }
+        return null;
+    }
+
+    /** {@link #format} of the compacted input, or the compact form itself if no alternative fits. */
+    public String normalize(CharSequence raw) {
+        String compact = compact(raw);
+        String formatted = format(compact);
+        return formatted != null ? formatted : compact;
+    }
+
+    private static String fill(Shape shape, String compact, boolean typedFixed) {
+        char[] template = shape.template;
+        byte[] kinds = shape.kinds;
+        char[] out = new char[template.length];
+        int j = 0;
+        for (int i = 0; i < template.length; i++) {
+            switch (kinds[i]) {
+                case SEPARATOR -> out[i] = template[i];
+                case FIXED -> {
+                    if (typedFixed && compact.charAt(j++) != template[i]) return null;
+                    out[i] = template[i];
+                }
+                case DIGIT -> {
+                    char c = compact.charAt(j++);
+                    if (c < '0' || c > '9') return null;
+                    out[i] = c;
+                }
+                default -> {
+                    char c = compact.charAt(j++);
+                    if (c < 'A' || c > 'Z') return null;
+                    out[i] = c;
+                }
+            }
+        }
+        return new String(out);
+    }
+}
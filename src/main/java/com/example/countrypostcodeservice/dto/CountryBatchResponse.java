@@ -0,0 +1,8 @@
+package com.example.countrypostcodeservice.dto;
+
+import java.util.List;
+
+public record CountryBatchResponse(
+        List<CountryInfoResponse> countries,
+        List<String> notFound
+) {}
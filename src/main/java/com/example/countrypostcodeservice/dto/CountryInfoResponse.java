@@ -1,8 +1,23 @@
 package com.example.countrypostcodeservice.dto;
 
+import com.example.countrypostcodeservice.domain.Country;
+
 public record CountryInfoResponse(
         String cca2,
         String name,
         String postalFormat,
-        String postalRegex
-) {}
+        String postalRegex,
+        String cca3,
+        String ccn3
+) {
+    public static CountryInfoResponse from(Country c) {
+        return new CountryInfoResponse(
+                c.getCca2(),
+                c.getCommonName(),
+                c.getPostalFormat(),
+                c.getPostalRegex(),
+                c.getCca3(),
+                c.getCcn3()
+        );
+    }
+}
@@ -0,0 +1,8 @@
+package com.example.countrypostcodeservice.dto;
+
+import java.util.List;
+
+public record CountrySearchResponse(
+        String query,
+        List<CountryInfoResponse> countries
+) {}
@@ -0,0 +1,9 @@
+package com.example.countrypostcodeservice.dto;
+
+public record PostcodeNormalizationResponse(
+        String cca2,
+        String postcode,
+        String normalized,
+        boolean valid,
+        String postalFormat
+) {}
@@ -0,0 +1,6 @@
+package com.example.countrypostcodeservice.dto;
+
+public record PostcodeValidationRequest(
+        String cca2,
+        String postcode
+) {}
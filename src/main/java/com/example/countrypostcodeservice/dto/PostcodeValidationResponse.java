@@ -0,0 +1,16 @@
+package com.example.countrypostcodeservice.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+/** {@code error} is set only when the country could not be looked up (then {@code valid} is false). */
+public record PostcodeValidationResponse(
+        String cca2,
+        String postcode,
+        boolean valid,
+        String postalFormat,
+        @JsonInclude(JsonInclude.Include.NON_NULL) String error
+) {
+    public PostcodeValidationResponse(String cca2, String postcode, boolean valid, String postalFormat) {
+        this(cca2, postcode, valid, postalFormat, null);
+    }
+}
@@ -0,0 +1,15 @@
+package com.example.countrypostcodeservice.dto;
+
+/**
+ * Snapshot of the REST Countries circuit breaker and bulkhead. Rates are percentages, or -1
+ * until the breaker has seen its minimum number of calls.
+ */
+public record UpstreamStatus(
+        String circuitBreaker,
+        float failureRate,
+        float slowCallRate,
+        int bufferedCalls,
+        long notPermittedCalls,
+        int activeCalls,
+        int queuedCalls
+) {}
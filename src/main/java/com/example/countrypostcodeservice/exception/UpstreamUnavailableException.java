@@ -0,0 +1,6 @@
+package com.example.countrypostcodeservice.exception;
+
+/** REST Countries was not called at all: the circuit breaker is open or the bulkhead is full. */
+public class UpstreamUnavailableException extends CountryImportException {
+    public UpstreamUnavailableException(String msg, Throwable cause) { super(msg, cause); }
+}
@@ -1,6 +1,49 @@
 package com.example.countrypostcodeservice.repository;
 
 import com.example.countrypostcodeservice.domain.Country;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 
-public interface CountryRepository extends JpaRepository<Country, String> {}
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+public interface CountryRepository extends JpaRepository<Country, String> {
+
+    String EXPORT_FETCH_SIZE = "500";
+
+    Optional<Country> findByCca3(String cca3);
+
+    Optional<Country> findByCcn3(String ccn3);
+
+    List<Country> findByCca3In(Collection<String> cca3);
+
+    List<Country> findByCcn3In(Collection<String> ccn3);
+
+    /**
+     * Every row in cca2 order, read through a cursor of {@value #EXPORT_FETCH_SIZE} rows instead of
+     * a list. Read-only, so Hibernate keeps no dirty-checking copies. Must be closed, inside a transaction.
+     */
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = EXPORT_FETCH_SIZE),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("select c from Country c order by c.cca2")
+    Stream<Country> streamAll();
+
+    /** Latest fetchedAt over all rows; null if the table is empty. */
+    @Query("select max(c.fetchedAt) from Country c")
+    Instant lastFetchedAt();
+
+    /** Renews fetchedAt for rows a refresh found unchanged, in one statement instead of a write per row. */
+    @Modifying
+    @Query("update Country c set c.fetchedAt = :fetchedAt where c.cca2 in :codes")
+    int markFetched(@Param("codes") Collection<String> codes, @Param("fetchedAt") Instant fetchedAt);
+}
@@ -0,0 +1,153 @@
+package com.example.countrypostcodeservice.service;
+
+import com.example.countrypostcodeservice.dto.PostcodeValidationRequest;
+import com.example.countrypostcodeservice.dto.PostcodeValidationResponse;
+import com.example.countrypostcodeservice.exception.CountryImportException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Validates a stream of (cca2, postcode) pairs, one per line, and writes one result
+ * line per input line in the same order. Input is consumed in fixed-size chunks whose
+ * lines are matched by {@code concurrency} workers on the bulk scheduler (lookups may block
+ * on H2 or upstream, so they stay off the common ForkJoinPool, and off the JPA scheduler their
+ * imports save on); memory use depends on the chunk size only.
+ */
+@Service
+public class BulkPostcodeValidationService {
+
+    public enum Format { NDJSON, CSV }
+
+    private static final String CSV_HEADER = "cca2,postcode";
+    private static final byte[] CSV_RESULT_HEADER = "cca2,postcode,valid,error".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] NEWLINE = {'\n'};
+    private static final String LOOKUP_FAILED = "country lookup failed";
+
+    private final CountryQueryService queries;
+    private final ObjectReader requestReader;
+    private final ObjectWriter responseWriter;
+    private final int chunkSize;
+    private final Scheduler bulkScheduler;
+    private final int concurrency;
+
+    public BulkPostcodeValidationService(CountryQueryService queries,
+                                         ObjectMapper mapper,
+                                         @Qualifier("bulkScheduler") Scheduler bulkScheduler,
+                                         @Value("${countries.bulk.chunk-size}") int chunkSize,
+                                         @Value("${countries.bulk.concurrency}") int concurrency) {
+        this.queries = queries;
+        this.requestReader = mapper.readerFor(PostcodeValidationRequest.class);
+        this.responseWriter = mapper.writerFor(PostcodeValidationResponse.class);
+        this.bulkScheduler = bulkScheduler;
+        this.chunkSize = chunkSize;
+        this.concurrency = Math.max(1, concurrency);
+    }
+
+    /** @return number of lines processed */
+    public long validate(InputStream in, OutputStream out, Format format) throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+        String[] lines = new String[chunkSize];
+        byte[][] results = new byte[chunkSize][];
+        long total = 0;
+
+        int n;
+        while ((n = readChunk(reader, lines)) > 0) {
+            final int count = n;
+            int workers = Math.min(concurrency, count);
+            // worker w takes lines w, w + workers, ...: a fixed number of tasks per chunk, not one per line
+            Flux.range(0, workers)
+                    .flatMap(w -> Mono.fromRunnable(() -> {
+                        for (int i = w; i < count; i += workers) results[i] = validateLine(lines[i], format);
+                    }).subscribeOn(bulkScheduler), workers)
+                    .blockLast();
+            for (int i = 0; i < count; i++) {
+                out.write(results[i]);
+                out.write(NEWLINE);
+                results[i] = null;
+            }
+            out.flush();
+            total += count;
+        }
+        return total;
+    }
+
+    private static int readChunk(BufferedReader reader, String[] lines) throws IOException {
+        int n = 0;
+        String line;
+        while (n < lines.length && (line = reader.readLine()) != null) {
+            lines[n++] = line;   // blank lines too: one result line per input line
+        }
+        return n;
+    }
+
+    private byte[] validateLine(String line, Format format) {
+        if (format == Format.CSV && line.equalsIgnoreCase(CSV_HEADER)) return CSV_RESULT_HEADER;
+        PostcodeValidationRequest req = format == Format.CSV ? parseCsv(line) : parseJson(line);
+        PostcodeValidationResponse result = req == null || req.cca2() == null || req.postcode() == null
+                ? new PostcodeValidationResponse(null, line, false, null)
+                : validate(req);
+        return format == Format.CSV ? toCsv(result) : toJson(result);
+    }
+
+    /**
+     * A failed lookup (upstream down, breaker open, bulkhead full) becomes an invalid result with
+     * an error instead of ending the response: the status and earlier chunks are already sent.
+     */
+    private PostcodeValidationResponse validate(PostcodeValidationRequest req) {
+        try {
+            return queries.validatePostcode(req.cca2(), req.postcode())
+                    .orElseGet(() -> new PostcodeValidationResponse(req.cca2(), req.postcode(), false, null));
+        } catch (CountryImportException e) {   // includes UpstreamUnavailableException
+            return new PostcodeValidationResponse(req.cca2(), req.postcode(), false, null, LOOKUP_FAILED);
+        }
+    }
+
+    private PostcodeValidationRequest parseJson(String line) {
+        try {
+            return requestReader.readValue(line);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    /** {@code cca2,postcode}; the postcode may be quoted (RFC 4180). */
+    private static PostcodeValidationRequest parseCsv(String line) {
+        int comma = line.indexOf(',');
+        if (comma < 0) return null;
+        return new PostcodeValidationRequest(line.substring(0, comma).trim(), Csv.unquote(line.substring(comma + 1).trim()));
+    }
+
+    private byte[] toJson(PostcodeValidationResponse result) {
+        try {
+            return responseWriter.writeValueAsBytes(result);
+        } catch (IOException e) {
+            throw new IllegalStateException("Could not serialize validation result", e);
+        }
+    }
+
+    /**
+     * {@code cca2,postcode,valid,error}, fields quoted where needed (RFC 4180); error is empty
+     * unless the lookup failed, so a failure isn't mistaken for an invalid postcode
+     */
+    private static byte[] toCsv(PostcodeValidationResponse r) {
+        StringBuilder line = new StringBuilder(32);
+        Csv.append(line, r.cca2()).append(',');
+        Csv.append(line, r.postcode()).append(',').append(r.valid()).append(',');
+        Csv.append(line, r.error());
+        return line.toString().getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,103 @@
+package com.example.countrypostcodeservice.service;
+
+import com.example.countrypostcodeservice.domain.Country;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * In-memory read-through layer in front of {@code CountryRepository}.
+ * Known countries live in a {@link CountryIndex} (one slot per possible alpha-2 code, so
+ * it is bounded by construction), which also resolves their alpha-3 and numeric codes;
+ * codes that upstream answered 404 for are remembered in a size- and time-bounded negative
+ * cache so they don't hit H2 or upstream again.
+ */
+@Component
+public class CountryCache {
+
+    private final CountryIndex countries = new CountryIndex();
+    private final Cache<String, Boolean> missing;
+
+    public CountryCache(@Value("${countries.cache.max-size}") long maxSize,
+                        @Value("${countries.cache.negative-ttl}") Duration negativeTtl) {
+        this.missing = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(negativeTtl)
+                .build();
+    }
+
+    /** Trimmed and upper-cased; numeric codes are zero-padded to three digits as stored ("56" → "056"). */
+    public static String normalize(String code) {
+        String key = code.trim().toUpperCase(Locale.ROOT);
+        return key.length() < 3 && CountryCodeType.of(key) == CountryCodeType.NUMERIC ? "0".repeat(3 - key.length()) + key : key;
+    }
+
+    /**
+     * Cached country for an alpha-2, alpha-3 or numeric code, or null if the code is not cached
+     * (see {@link #isKnownMissing}).
+     */
+    public Country get(String code) {
+        Country country = countries.get(code);   // allocation-free for plain codes
+        if (country == null && !code.isEmpty() && (code.charAt(0) <= ' ' || code.charAt(code.length() - 1) <= ' ')) {
+            country = countries.get(code.trim());
+        }
+        return country;
+    }
+
+    /** True if upstream recently reported this code as unknown. */
+    public boolean isKnownMissing(String cca2) {
+        return missing.getIfPresent(normalize(cca2)) != null;
+    }
+
+    /** Store (or overwrite) a country; clears any negative entry for its codes. */
+    public void put(Country country) {
+        countries.put(country);
+        clearMissing(country);
+    }
+
+    public void putAll(Collection<Country> saved) {
+        countries.putAll(saved);
+        for (Country country : saved) clearMissing(country);
+    }
+
+    private void clearMissing(Country country) {
+        missing.invalidate(normalize(country.getCca2()));
+        if (country.getCca3() != null) missing.invalidate(country.getCca3());
+        if (country.getCcn3() != null) missing.invalidate(country.getCcn3());
+    }
+
+    /** Marks a code unknown upstream. Evicts a cached country only if this is its own cca2, never via an alias. */
+    public void putMissing(String code) {
+        String key = normalize(code);
+        Country known = countries.get(key);
+        if (known != null && key.equals(known.getCca2())) countries.remove(key);
+        missing.put(key, Boolean.TRUE);
+    }
+
+    public void invalidate(String cca2) {
+        String key = normalize(cca2);
+        countries.remove(key);
+        missing.invalidate(key);
+    }
+
+    /** Every cached (known) country. */
+    public List<Country> all() {
+        return countries.values();
+    }
+
+    /** Changes whenever a country is stored or removed; see {@link CountryIndex#version()}. */
+    public long version() {
+        return countries.version();
+    }
+
+    public void invalidateAll() {
+        countries.clear();
+        missing.invalidateAll();
+    }
+}
@@ -0,0 +1,41 @@
+package com.example.countrypostcodeservice.service;
+
+import com.example.countrypostcodeservice.domain.Country;
+
+import java.util.Objects;
+
+/** The kinds of code a country can be looked up by, told apart by shape. */
+public enum CountryCodeType {
+
+    /** Two letters, e.g. NL: the primary key. */
+    ALPHA2,
+    /** Three letters, e.g. NLD. */
+    ALPHA3,
+    /** One to three digits, e.g. 528 (stored zero-padded to three). */
+    NUMERIC,
+    UNKNOWN;
+
+    public static CountryCodeType of(CharSequence code) {
+        int n = code.length();
+        if (n == 0 || n > 3) return UNKNOWN;
+        boolean letters = true, digits = true;
+        for (int i = 0; i < n; i++) {
+            char c = code.charAt(i);
+            letters &= (c >= 'A' && c <= 'Z') || (c >= 'a' && c <= 'z');
+            digits &= c >= '0' && c <= '9';
+        }
+        if (digits) return NUMERIC;
+        if (letters && n == 2) return ALPHA2;
+        if (letters && n == 3) return ALPHA3;
+        return UNKNOWN;
+    }
+
+    /** True if the country carries this (normalized) code. */
+    public static boolean matches(Country country, String code) {
+        return switch (of(code)) {
+            case ALPHA2, UNKNOWN -> code.equals(country.getCca2());
+            case ALPHA3 -> code.equals(country.getCca3());
+            case NUMERIC -> Objects.equals(code, country.getCcn3());
+        };
+    }
+}
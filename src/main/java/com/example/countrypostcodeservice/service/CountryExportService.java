@@ -0,0 +1,116 @@
+package com.example.countrypostcodeservice.service;
+
+import com.example.countrypostcodeservice.domain.Country;
+import com.example.countrypostcodeservice.dto.CountryInfoResponse;
+import com.example.countrypostcodeservice.repository.CountryRepository;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import jakarta.persistence.EntityManager;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Iterator;
+import java.util.Optional;
+import java.util.stream.Stream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Writes the whole countries table as NDJSON or CSV, optionally gzipped. Rows come from a
+ * database cursor ({@link CountryRepository#streamAll()}) and are detached as soon as they are
+ * written, so memory use is the fetch size plus the output buffer, however many rows there are.
+ */
+@Service
+public class CountryExportService {
+
+    public enum Format { NDJSON, CSV }
+
+    private static final byte[] CSV_HEADER =
+            "cca2,cca3,ccn3,name,postalFormat,postalRegex\n".getBytes(StandardCharsets.UTF_8);
+    private static final int BUFFER_SIZE = 16 * 1024;
+
+    private final CountryRepository repo;
+    private final EntityManager em;
+    private final TransactionTemplate readOnlyTx;
+    private final ObjectWriter writer;
+
+    public CountryExportService(CountryRepository repo,
+                                EntityManager em,
+                                TransactionTemplate tx,
+                                ObjectMapper mapper) {
+        this.repo = repo;
+        this.em = em;
+        this.readOnlyTx = new TransactionTemplate(tx.getTransactionManager());
+        this.readOnlyTx.setReadOnly(true);
+        // rows go straight into the shared buffer: no close or flush per value
+        this.writer = mapper.writerFor(CountryInfoResponse.class)
+                .without(JsonGenerator.Feature.AUTO_CLOSE_TARGET)
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+    }
+
+    /**
+     * When the table last changed, to the second, for If-Modified-Since. Every write sets
+     * fetchedAt, so this never misses a change (a refresh that changed nothing still counts).
+     */
+    public Optional<Instant> lastModified() {
+        return Optional.ofNullable(repo.lastFetchedAt()).map(t -> Instant.ofEpochSecond(t.getEpochSecond()));
+    }
+
+    /** @return number of rows written; {@code out} is flushed (and the gzip trailer written) but not closed */
+    public long export(OutputStream out, Format format, boolean gzip) throws IOException {
+        GZIPOutputStream gz = gzip ? new GZIPOutputStream(out, BUFFER_SIZE) : null;
+        OutputStream buffered = new BufferedOutputStream(gz != null ? gz : out, BUFFER_SIZE);
+        long rows;
+        try {
+            rows = readOnlyTx.execute(status -> {
+                try (Stream<Country> countries = repo.streamAll()) {
+                    return writeRows(countries.iterator(), buffered, format);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        buffered.flush();
+        if (gz != null) gz.finish();
+        out.flush();
+        return rows;
+    }
+
+    private long writeRows(Iterator<Country> countries, OutputStream out, Format format) throws IOException {
+        if (format == Format.CSV) out.write(CSV_HEADER);
+        long rows = 0;
+        while (countries.hasNext()) {
+            Country c = countries.next();
+            if (format == Format.CSV) {
+                out.write(toCsv(c));
+            } else {
+                writer.writeValue(out, CountryInfoResponse.from(c));
+                out.write('\n');
+            }
+            em.detach(c);
+            rows++;
+        }
+        return rows;
+    }
+
+    /** {@code cca2,cca3,ccn3,name,postalFormat,postalRegex}; quoted where needed (RFC 4180), null as empty. */
+    private static byte[] toCsv(Country c) {
+        StringBuilder line = new StringBuilder(64);
+        Csv.append(line, c.getCca2()).append(',');
+        Csv.append(line, c.getCca3()).append(',');
+        Csv.append(line, c.getCcn3()).append(',');
+        Csv.append(line, c.getCommonName()).append(',');
+        Csv.append(line, c.getPostalFormat()).append(',');
+        Csv.append(line, c.getPostalRegex()).append('\n');
+        return line.toString().getBytes(StandardCharsets.UTF_8);
+    }
+}
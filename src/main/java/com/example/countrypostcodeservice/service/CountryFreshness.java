@@ -0,0 +1,62 @@
+package com.example.countrypostcodeservice.service;
+
+import com.example.countrypostcodeservice.domain.Country;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Classifies a stored country by the age of its {@code fetchedAt}: FRESH rows are served
+ * as-is, STALE rows (past the soft TTL) are served while a background refresh runs, and
+ * EXPIRED rows (past the hard TTL) are refreshed inline before being served. A code whose
+ * refresh just failed (see {@link #refreshFailed}) counts as FRESH until its retry backoff
+ * has passed, so an upstream outage doesn't turn every read into another upstream attempt.
+ */
+@Component
+public class CountryFreshness {
+
+    public enum State { FRESH, STALE, EXPIRED }
+
+    private final long softTtlMillis;
+    private final long hardTtlMillis;
+    private final long retryBackoffMillis;
+    /** cca2 -> epoch millis before which no refresh is attempted; bounded by the number of stored codes. */
+    private final ConcurrentMap<String, Long> retryAfter = new ConcurrentHashMap<>();
+
+    public CountryFreshness(@Value("${countries.freshness.soft-ttl}") Duration softTtl,
+                            @Value("${countries.freshness.hard-ttl}") Duration hardTtl,
+                            @Value("${countries.freshness.retry-backoff}") Duration retryBackoff) {
+        this.softTtlMillis = softTtl.toMillis();
+        this.hardTtlMillis = hardTtl.toMillis();
+        this.retryBackoffMillis = retryBackoff.toMillis();
+    }
+
+    /** Records a failed or fruitless refresh: the code is not refreshed again until the backoff has passed. */
+    public void refreshFailed(String cca2) {
+        retryAfter.put(cca2, System.currentTimeMillis() + retryBackoffMillis);
+    }
+
+    /** Works on epoch millis so the check doesn't allocate on the read path. */
+    public State of(Country country) {
+        long now = System.currentTimeMillis();
+        Instant fetchedAt = country.getFetchedAt();
+        State state;
+        if (fetchedAt == null) {
+            state = State.STALE;   // unknown age: serve it, but refresh in the background
+        } else {
+            long age = now - fetchedAt.toEpochMilli();
+            state = age >= hardTtlMillis ? State.EXPIRED : age >= softTtlMillis ? State.STALE : State.FRESH;
+        }
+        if (state == State.FRESH || retryAfter.isEmpty()) return state;
+
+        Long until = retryAfter.get(country.getCca2());
+        if (until == null) return state;
+        if (now < until) return State.FRESH;
+        retryAfter.remove(country.getCca2(), until);
+        return state;
+    }
+}
@@ -3,58 +3,294 @@ package com.example.countrypostcodeservice.service;
 import com.example.countrypostcodeservice.domain.Country;
 import com.example.countrypostcodeservice.exception.CountryImportException;
 import com.example.countrypostcodeservice.repository.CountryRepository;
+import com.example.countrypostcodeservice.service.CountryMetrics.Endpoint;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.web.reactive.function.client.WebClient;
 import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
 
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 @Service
 public class CountryImportService {
 
+    static final String FIELDS = "name,postalCode,cca2,cca3,ccn3";
+    /** Codes per /v3.1/alpha?codes= call, so the request URL stays bounded however many are asked for. */
+    static final int MAX_CODES_PER_CALL = 50;
+
     private final WebClient client;
     private final CountryRepository repo;
+    private final CountryCache cache;
+    private final CountryMetrics metrics;
+    private final UpstreamCallPolicy policy;
+    private final UpstreamGuard guard;
+    private final Scheduler jpaScheduler;
+    private final Duration inFlightTimeout;
+
+    /** One pending upstream fetch per normalized code; concurrent callers share it. */
+    private final ConcurrentMap<String, CompletableFuture<Optional<Country>>> inFlight = new ConcurrentHashMap<>();
 
-    public CountryImportService(WebClient restCountriesWebClient, CountryRepository repo) {
+    public CountryImportService(WebClient restCountriesWebClient,
+                                CountryRepository repo,
+                                CountryCache cache,
+                                CountryMetrics metrics,
+                                UpstreamCallPolicy policy,
+                                UpstreamGuard guard,
+                                Scheduler jpaScheduler,
+                                @Value("${countries.import.in-flight-timeout}") Duration inFlightTimeout) {
         this.client = restCountriesWebClient;
         this.repo = repo;
+        this.cache = cache;
+        this.metrics = metrics;
+        this.policy = policy;
+        this.guard = guard;
+        this.jpaScheduler = jpaScheduler;
+        this.inFlightTimeout = inFlightTimeout;
     }
 
+    /**
+     * Fetches a country from REST Countries and saves it. If a fetch for the same
+     * code is already running, waits for that one instead of calling upstream again.
+     * The caller that starts the fetch also saves on its own thread, so this never waits
+     * on the JPA scheduler (and may be called from it).
+     */
     public Optional<Country> fetchAndSave(String alpha2) {
         if (alpha2 == null || alpha2.isBlank()) return Optional.empty();
 
-        String code = alpha2.trim();
+        String key = CountryCache.normalize(alpha2);
+        CompletableFuture<Optional<Country>> mine = new CompletableFuture<>();
+        CompletableFuture<Optional<Country>> running = inFlight.putIfAbsent(key, mine);
+        if (running == null) return lead(key, alpha2.trim(), mine);
+        try {
+            return running.get(inFlightTimeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException re) throw re;
+            throw new CountryImportException("Failed calling REST Countries: " + e.getCause().getMessage(), e.getCause());
+        } catch (TimeoutException e) {
+            throw timedOut(key, e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CountryImportException("Interrupted waiting for in-flight fetch of " + key, e);
+        }
+    }
 
-        RestCountry rc;
+    /**
+     * Runs the fetch other callers joined and hands them its outcome. The upstream deadline
+     * already bounds the call; the in-flight timeout on top covers bulkhead queueing.
+     */
+    private Optional<Country> lead(String key, String code, CompletableFuture<Optional<Country>> mine) {
         try {
-            rc = client.get()
-                    .uri(uriBuilder -> uriBuilder
-                            .path("/v3.1/alpha/{code}")
-                            .queryParam("fields", "name,postalCode,cca2")
-                            .build(code))
-                    .retrieve()
-                    .bodyToMono(RestCountry.class)   // <-- single object
+            Optional<Country> result = fetchRemote(code)
+                    .timeout(inFlightTimeout.plus(policy.deadline()), Mono.error(() ->
+                            new CountryImportException("Timed out fetching " + key + " from REST Countries", null)))
+                    .blockOptional()
+                    .map(this::save);
+            mine.complete(result);
+            return result;
+        } catch (RuntimeException e) {
+            mine.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, mine);
+        }
+    }
+
+    /**
+     * Non-blocking variant of {@link #fetchAndSave}: the upstream call never blocks the
+     * caller and the save runs on the JPA scheduler. Empty if upstream doesn't know the code.
+     */
+    public Mono<Country> fetchAndSaveAsync(String alpha2) {
+        if (alpha2 == null || alpha2.isBlank()) return Mono.empty();
+
+        String key = CountryCache.normalize(alpha2);
+        return Mono.defer(() -> {
+            Flight flight = join(key, alpha2.trim());
+            // suppressCancel: one subscriber going away must not cancel the fetch others share
+            Mono<Optional<Country>> result = Mono.fromFuture(flight.result(), true);
+            if (!flight.leader()) {
+                result = result.timeout(inFlightTimeout, Mono.error(() -> timedOut(key, null)));
+            }
+            return result.flatMap(Mono::justOrEmpty);
+        });
+    }
+
+    /** True while the circuit breaker fails upstream calls fast; stored data is all there is. */
+    public boolean isCircuitOpen() {
+        return guard.isOpen();
+    }
+
+    private record Flight(CompletableFuture<Optional<Country>> result, boolean leader) {}
+
+    /** Joins the pending fetch of {@code key}, or starts one that saves on the JPA scheduler. */
+    private Flight join(String key, String code) {
+        CompletableFuture<Optional<Country>> mine = new CompletableFuture<>();
+        CompletableFuture<Optional<Country>> running = inFlight.putIfAbsent(key, mine);
+        if (running != null) return new Flight(running, false);
+
+        fetchRemote(code)
+                .publishOn(jpaScheduler)   // JPA is blocking, keep it off the event loop
+                .map(this::save)
+                .map(Optional::of)
+                .defaultIfEmpty(Optional.empty())
+                .doFinally(signal -> inFlight.remove(key, mine))
+                .subscribe(mine::complete, mine::completeExceptionally);
+        return new Flight(mine, true);
+    }
+
+    private static CountryImportException timedOut(String code, Throwable cause) {
+        return new CountryImportException("Timed out waiting for in-flight fetch of " + code, cause);
+    }
+
+    /** Upstream lookup of one code, mapped onto our entity; empty on 404 or when the name is missing. */
+    private Mono<Country> fetchRemote(String code) {
+        return metrics.timeUpstream(Endpoint.ALPHA, guard.protect(policy.apply(client.get()
+                        .uri(uriBuilder -> uriBuilder
+                                .path("/v3.1/alpha/{code}")
+                                .queryParam("fields", FIELDS)
+                                .build(code))
+                        .retrieve()
+                        .bodyToMono(RestCountry.class))))   // <-- single object
+                .onErrorResume(WebClientResponseException.NotFound.class, e -> Mono.empty())
+                .onErrorMap(WebClientResponseException.class, e -> new CountryImportException(
+                        "REST Countries returned " + e.getStatusCode().value() + " for /v3.1/alpha/" + code,
+                        e
+                ))
+                .onErrorMap(e -> !(e instanceof CountryImportException),
+                        e -> new CountryImportException("Failed calling REST Countries: " + e.getMessage(), e))
+                .mapNotNull(rc -> toCountry(rc, code));
+    }
+
+    private Country save(Country country) {
+        Country saved = repo.save(country);
+        cache.put(saved);
+        return saved;
+    }
+
+    /**
+     * Fetches several countries through {@link #fetchAll} and saves them in one batch.
+     * Codes upstream doesn't know are simply absent from the result.
+     */
+    public List<Country> fetchAndSaveAll(Collection<String> alpha2Codes) {
+        List<Country> countries = fetchAll(alpha2Codes);
+        if (countries.isEmpty()) return List.of();
+
+        List<Country> saved = repo.saveAll(countries);
+        cache.putAll(saved);
+        return saved;
+    }
+
+    /**
+     * /v3.1/alpha?codes=... calls of at most {@value #MAX_CODES_PER_CALL} codes each, mapped onto
+     * our entity but not saved. Codes upstream doesn't know are simply absent from the result.
+     */
+    public List<Country> fetchAll(Collection<String> alpha2Codes) {
+        if (alpha2Codes.isEmpty()) return List.of();
+        if (alpha2Codes.size() <= MAX_CODES_PER_CALL) return fetchChunk(alpha2Codes);
+
+        List<String> all = List.copyOf(alpha2Codes);
+        List<Country> countries = new ArrayList<>(all.size());
+        for (int from = 0; from < all.size(); from += MAX_CODES_PER_CALL) {
+            countries.addAll(fetchChunk(all.subList(from, Math.min(from + MAX_CODES_PER_CALL, all.size()))));
+        }
+        return countries;
+    }
+
+    private List<Country> fetchChunk(Collection<String> alpha2Codes) {
+        String codes = String.join(",", alpha2Codes);
+        List<RestCountry> fetched;
+        try {
+            fetched = metrics.timeUpstream(Endpoint.ALPHA_CODES, guard.protect(policy.apply(client.get()
+                            .uri(uriBuilder -> uriBuilder
+                                    .path("/v3.1/alpha")
+                                    .queryParam("codes", codes)
+                                    .queryParam("fields", FIELDS)
+                                    .build())
+                            .retrieve()
+                            .bodyToFlux(RestCountry.class)   // <-- array
+                            .collectList())))
                     .block();
+        } catch (CountryImportException e) {
+            throw e;
         } catch (WebClientResponseException e) {
-            if (e.getStatusCode().value() == 404) return Optional.empty();
+            if (e.getStatusCode().value() == 404) return List.of();
             throw new CountryImportException(
-                    "REST Countries returned " + e.getStatusCode().value() + " for /v3.1/alpha/" + code,
+                    "REST Countries returned " + e.getStatusCode().value() + " for /v3.1/alpha?codes=" + codes,
                     e
             );
         } catch (Exception e) {
             throw new CountryImportException("Failed calling REST Countries: " + e.getMessage(), e);
         }
 
-        if (rc == null) return Optional.empty();
+        if (fetched == null || fetched.isEmpty()) return List.of();
+
+        List<Country> countries = new ArrayList<>(fetched.size());
+        for (RestCountry rc : fetched) {
+            Country country = toCountry(rc, null);
+            if (country != null) countries.add(country);
+        }
+        return countries;
+    }
+
+    /**
+     * Streams the full /v3.1/all array and saves it in batches of {@code batchSize}.
+     * Elements are decoded one at a time, so the whole body is never buffered. Not retried:
+     * a stream that failed halfway would be saved twice; {@code timeout} bounds the whole import.
+     *
+     * @return number of countries saved
+     */
+    public int importAll(int batchSize, Duration timeout) {
+        Integer saved;
+        try {
+            saved = metrics.timeUpstream(Endpoint.ALL, client.get()
+                            .uri(uriBuilder -> uriBuilder
+                                    .path("/v3.1/all")
+                                    .queryParam("fields", FIELDS)
+                                    .build())
+                            .retrieve()
+                            .bodyToFlux(RestCountry.class))   // <-- array, decoded element by element
+                    .mapNotNull(rc -> toCountry(rc, null))
+                    .buffer(batchSize)
+                    .publishOn(jpaScheduler)   // JPA is blocking, keep it off the event loop
+                    .map(this::saveBatch)
+                    .reduce(0, Integer::sum)
+                    .block(timeout);
+        } catch (WebClientResponseException e) {
+            throw new CountryImportException(
+                    "REST Countries returned " + e.getStatusCode().value() + " for /v3.1/all", e);
+        } catch (Exception e) {
+            throw new CountryImportException("Failed calling REST Countries: " + e.getMessage(), e);
+        }
+        return saved != null ? saved : 0;
+    }
+
+    private int saveBatch(List<Country> batch) {
+        List<Country> saved = repo.saveAll(batch);
+        cache.putAll(saved);
+        return saved.size();
+    }
 
-        String cca2   = rc.cca2 != null ? rc.cca2.toUpperCase() : code.toUpperCase();
+    /** Maps an upstream country onto our entity; null if it has no common name. */
+    static Country toCountry(RestCountry rc, String requestedCode) {
+        String fallback = requestedCode != null && CountryCodeType.of(requestedCode) == CountryCodeType.ALPHA2 ? requestedCode.toUpperCase() : null;
+        String cca2   = rc.cca2 != null ? rc.cca2.toUpperCase() : fallback;
         String common = rc.name != null ? rc.name.common : null;
         String fmt    = rc.postalCode != null ? rc.postalCode.format : null;
         String regex  = rc.postalCode != null ? rc.postalCode.regex : null;
 
-        if (common == null) return Optional.empty();
-
-        Country saved = repo.save(new Country(cca2, common, fmt, regex));
-        return Optional.of(saved);
+        if (cca2 == null || common == null) return null;
+        return new Country(cca2, rc.cca3, rc.ccn3, common, fmt, regex, Instant.now());
     }
 }
@@ -0,0 +1,186 @@
+package com.example.countrypostcodeservice.service;
+
+import com.example.countrypostcodeservice.domain.Country;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Direct-addressed index of countries by alpha-2 code: the two letters map straight to one
+ * of 26 x 26 array slots. Alpha-3 and numeric codes go through two more direct-addressed
+ * arrays (26^3 and 1000 entries) holding the alpha-2 slot, so any code costs two array reads.
+ * Lookups fold case on chars and never allocate. Arrays are never mutated once published;
+ * writers copy them, change the copy and swap the volatile reference (the alias arrays only
+ * when a code actually changed). Every write bumps {@link #version()}, so derived structures
+ * can tell when to rebuild.
+ */
+public final class CountryIndex {
+
+    private static final int SLOTS = 26 * 26;
+    private static final int ALPHA3_SLOTS = 26 * 26 * 26;
+    private static final int NUMERIC_SLOTS = 1000;
+
+    private volatile Country[] slots = new Country[SLOTS];
+    /** Alpha-2 slot + 1 per alpha-3 / numeric code; 0 if unknown. */
+    private volatile short[] byAlpha3 = new short[ALPHA3_SLOTS];
+    private volatile short[] byNumeric = new short[NUMERIC_SLOTS];
+    private volatile long version;
+
+    /**
+     * Country stored under the code: alpha-2 or alpha-3 letters (either case) or a numeric code
+     * (with or without leading zeros). Null if absent or not a code.
+     */
+    public Country get(CharSequence code) {
+        int slot = primarySlot(code);
+        return slot < 0 ? null : slots[slot];
+    }
+
+    public synchronized void put(Country country) {
+        int slot = slot(country.getCca2());
+        if (slot < 0) return;
+        Country[] copy = slots.clone();
+        Aliases aliases = new Aliases();
+        aliases.relink(copy[slot], country, slot);
+        copy[slot] = country;
+        publish(copy, aliases);
+    }
+
+    public synchronized void putAll(Collection<Country> countries) {
+        Country[] copy = slots.clone();
+        Aliases aliases = new Aliases();
+        for (Country country : countries) {
+            int slot = slot(country.getCca2());
+            if (slot < 0) continue;
+            aliases.relink(copy[slot], country, slot);
+            copy[slot] = country;
+        }
+        publish(copy, aliases);
+    }
+
+    public synchronized void remove(CharSequence code) {
+        int slot = primarySlot(code);
+        if (slot < 0 || slots[slot] == null) return;
+        Country[] copy = slots.clone();
+        Aliases aliases = new Aliases();
+        aliases.relink(copy[slot], null, slot);
+        copy[slot] = null;
+        publish(copy, aliases);
+    }
+
+    public synchronized void clear() {
+        slots = new Country[SLOTS];
+        byAlpha3 = new short[ALPHA3_SLOTS];
+        byNumeric = new short[NUMERIC_SLOTS];
+        version++;
+    }
+
+    /** Every stored country, in code order. */
+    public List<Country> values() {
+        Country[] current = slots;
+        List<Country> values = new ArrayList<>();
+        for (Country country : current) {
+            if (country != null) values.add(country);
+        }
+        return values;
+    }
+
+    /** Incremented by every write. */
+    public long version() {
+        return version;
+    }
+
+    private void publish(Country[] copy, Aliases aliases) {
+        slots = copy;
+        byAlpha3 = aliases.alpha3;
+        byNumeric = aliases.numeric;
+        version++;
+    }
+
+    /** Alias arrays being updated by one write; each is copied on its first change only. */
+    private final class Aliases {
+        short[] alpha3 = byAlpha3;
+        short[] numeric = byNumeric;
+        private boolean alpha3Copied, numericCopied;
+
+        /** Points the codes of {@code next} at {@code slot} and drops those of {@code previous} it no longer has. */
+        void relink(Country previous, Country next, int slot) {
+            short target = (short) (slot + 1);
+            if (previous != null) {
+                int a3 = alpha3Slot(previous.getCca3());
+                if (a3 >= 0 && alpha3[a3] == target && (next == null || a3 != alpha3Slot(next.getCca3()))) setAlpha3(a3, (short) 0);
+                int num = numericSlot(previous.getCcn3());
+                if (num >= 0 && numeric[num] == target && (next == null || num != numericSlot(next.getCcn3()))) setNumeric(num, (short) 0);
+            }
+            if (next != null) {
+                int a3 = alpha3Slot(next.getCca3());
+                if (a3 >= 0) setAlpha3(a3, target);
+                int num = numericSlot(next.getCcn3());
+                if (num >= 0) setNumeric(num, target);
+            }
+        }
+
+        private void setAlpha3(int i, short value) {
+            if (alpha3[i] == value) return;
+            if (!alpha3Copied) {
+                alpha3 = alpha3.clone();
+                alpha3Copied = true;
+            }
+            alpha3[i] = value;
+        }
+
+        private void setNumeric(int i, short value) {
+            if (numeric[i] == value) return;
+            if (!numericCopied) {
+                numeric = numeric.clone();
+                numericCopied = true;
+            }
+            numeric[i] = value;
+        }
+    }
+
+    /** Alpha-2 slot for any kind of code, or -1. */
+    private int primarySlot(CharSequence code) {
+        int slot = slot(code);
+        if (slot >= 0) return slot;
+        int a3 = alpha3Slot(code);
+        if (a3 >= 0) return byAlpha3[a3] - 1;
+        int num = numericSlot(code);
+        if (num >= 0) return byNumeric[num] - 1;
+        return -1;
+    }
+
+    static int slot(CharSequence code) {
+        if (code == null || code.length() != 2) return -1;
+        int hi = letter(code.charAt(0));
+        int lo = letter(code.charAt(1));
+        return hi < 0 || lo < 0 ? -1 : hi * 26 + lo;
+    }
+
+    static int alpha3Slot(CharSequence code) {
+        if (code == null || code.length() != 3) return -1;
+        int a = letter(code.charAt(0));
+        int b = letter(code.charAt(1));
+        int c = letter(code.charAt(2));
+        return a < 0 || b < 0 || c < 0 ? -1 : (a * 26 + b) * 26 + c;
+    }
+
+    /** Value of a one- to three-digit code, or -1. */
+    static int numericSlot(CharSequence code) {
+        if (code == null || code.isEmpty() || code.length() > 3) return -1;
+        int value = 0;
+        for (int i = 0; i < code.length(); i++) {
+            char c = code.charAt(i);
+            if (c < '0' || c > '9') return -1;
+            value = value * 10 + (c - '0');
+        }
+        return value;
+    }
+
+    /** 0..25 for A-Z / a-z, -1 otherwise. */
+    private static int letter(char c) {
+        if (c >= 'a' && c <= 'z') return c - 'a';
+        if (c >= 'A' && c <= 'Z') return c - 'A';
+        return -1;
+    }
+}
@@ -0,0 +1,138 @@
+package com.example.countrypostcodeservice.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Lookup and upstream metrics. Every meter is registered up front, so recording on the hot
+ * path is a field read plus an increment, with no tag building or registry lookups.
+ * <ul>
+ *   <li>{@code countries.lookups{outcome}}: where a lookup was answered from (cache, database,
+ *       upstream), or not_found / error</li>
+ *   <li>{@code countries.upstream.requests{uri,outcome}}: REST Countries call latency, outcome
+ *       success / not_found / error</li>
+ *   <li>{@code countries.refresh.checked / changed / skipped}: rows the background refresh
+ *       re-fetched, of which written because their content changed, and left alone</li>
+ * </ul>
+ * Repository timings come from Spring Data's {@code spring.data.repository.invocations}.
+ */
+@Component
+public class CountryMetrics {
+
+    public enum Lookup { CACHE, DATABASE, UPSTREAM, NOT_FOUND, ERROR }
+
+    public enum Upstream { SUCCESS, NOT_FOUND, ERROR }
+
+    public enum Endpoint {
+        ALPHA("/v3.1/alpha/{code}"),
+        ALPHA_CODES("/v3.1/alpha"),
+        ALL("/v3.1/all");
+
+        private final String uri;
+
+        Endpoint(String uri) {
+            this.uri = uri;
+        }
+    }
+
+    static final String LOOKUPS = "countries.lookups";
+    static final String UPSTREAM_REQUESTS = "countries.upstream.requests";
+    static final String REFRESH_CHECKED = "countries.refresh.checked";
+    static final String REFRESH_CHANGED = "countries.refresh.changed";
+    static final String REFRESH_SKIPPED = "countries.refresh.skipped";
+
+    private final Map<Lookup, Counter> lookups = new EnumMap<>(Lookup.class);
+    private final Map<Endpoint, Map<Upstream, Timer>> upstream = new EnumMap<>(Endpoint.class);
+    private final Counter refreshChecked;
+    private final Counter refreshChanged;
+    private final Counter refreshSkipped;
+
+    public CountryMetrics(MeterRegistry registry) {
+        for (Lookup outcome : Lookup.values()) {
+            lookups.put(outcome, Counter.builder(LOOKUPS)
+                    .description("Country lookups by where they were answered from")
+                    .tag("outcome", tagValue(outcome))
+                    .register(registry));
+        }
+        for (Endpoint endpoint : Endpoint.values()) {
+            Map<Upstream, Timer> timers = new EnumMap<>(Upstream.class);
+            for (Upstream outcome : Upstream.values()) {
+                timers.put(outcome, Timer.builder(UPSTREAM_REQUESTS)
+                        .description("Calls to REST Countries")
+                        .tag("uri", endpoint.uri)
+                        .tag("outcome", tagValue(outcome))
+                        .register(registry));
+            }
+            upstream.put(endpoint, timers);
+        }
+        refreshChecked = Counter.builder(REFRESH_CHECKED)
+                .description("Stored countries checked against REST Countries by the background refresh")
+                .register(registry);
+        refreshChanged = Counter.builder(REFRESH_CHANGED)
+                .description("Countries the background refresh wrote because their content changed")
+                .register(registry);
+        refreshSkipped = Counter.builder(REFRESH_SKIPPED)
+                .description("Countries the background refresh left unwritten (unchanged or not returned)")
+                .register(registry);
+    }
+
+    public void lookup(Lookup outcome) {
+        lookups.get(outcome).increment();
+    }
+
+    public void lookups(Lookup outcome, int count) {
+        if (count > 0) lookups.get(outcome).increment(count);
+    }
+
+    public void refreshed(int checked, int changed, int skipped) {
+        refreshChecked.increment(checked);
+        refreshChanged.increment(changed);
+        refreshSkipped.increment(skipped);
+    }
+
+    /**
+     * Times one upstream call from subscription to its terminal signal. A value is SUCCESS,
+     * an empty result or a 404 is NOT_FOUND, any other error is ERROR. Cancellations are not
+     * recorded.
+     */
+    public <T> Mono<T> timeUpstream(Endpoint endpoint, Mono<T> call) {
+        Map<Upstream, Timer> timers = upstream.get(endpoint);
+        return Mono.defer(() -> {
+            long start = System.nanoTime();
+            return call.doOnSuccess(value -> record(timers, value != null ? Upstream.SUCCESS : Upstream.NOT_FOUND, start))
+                    .doOnError(e -> record(timers, classify(e), start));
+        });
+    }
+
+    /** Like {@link #timeUpstream(Endpoint, Mono)} for a streamed body; completion is SUCCESS. */
+    public <T> Flux<T> timeUpstream(Endpoint endpoint, Flux<T> call) {
+        Map<Upstream, Timer> timers = upstream.get(endpoint);
+        return Flux.defer(() -> {
+            long start = System.nanoTime();
+            return call.doOnComplete(() -> record(timers, Upstream.SUCCESS, start))
+                    .doOnError(e -> record(timers, classify(e), start));
+        });
+    }
+
+    private static void record(Map<Upstream, Timer> timers, Upstream outcome, long start) {
+        timers.get(outcome).record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+    }
+
+    private static Upstream classify(Throwable e) {
+        return e instanceof WebClientResponseException.NotFound ? Upstream.NOT_FOUND : Upstream.ERROR;
+    }
+
+    private static String tagValue(Enum<?> outcome) {
+        return outcome.name().toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,155 @@
+package com.example.countrypostcodeservice.service;
+
+import com.example.countrypostcodeservice.domain.Country;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Immutable search index over {@code commonName}. Names are folded (lower case, accents
+ * stripped) once at build time. Prefix queries binary-search a sorted array of every word-start
+ * suffix ("côte d'ivoire" is stored as "cote d'ivoire" and "ivoire"); substring queries of three
+ * or more characters go through trigram posting lists. Results are ranked: exact name, name
+ * prefix, word prefix, substring; then shorter names first, then alphabetically.
+ */
+public final class CountryNameIndex {
+
+    public static final CountryNameIndex EMPTY = new CountryNameIndex(List.of());
+
+    private static final int EXACT = 0, PREFIX = 1, WORD_PREFIX = 2, SUBSTRING = 3, NONE = 4;
+    private static final int[] NO_POSTINGS = new int[0];
+
+    /** Countries sorted by folded name; an entry's position is its alphabetical tie-break. */
+    private final Country[] countries;
+    private final String[] folded;
+    /** Sorted word-start suffixes of the folded names, and the entry each belongs to. */
+    private final String[] suffixes;
+    private final int[] suffixEntry;
+    private final Map<String, int[]> trigrams;
+
+    public CountryNameIndex(Collection<Country> source) {
+        record Named(Country country, String folded) { }
+        List<Named> named = new ArrayList<>(source.size());
+        for (Country c : source) {
+            if (c.getCommonName() != null) named.add(new Named(c, fold(c.getCommonName())));
+        }
+        named.sort(Comparator.comparing(Named::folded));
+
+        int n = named.size();
+        countries = new Country[n];
+        folded = new String[n];
+        record Suffix(String text, int entry) { }
+        List<Suffix> allSuffixes = new ArrayList<>();
+        Map<String, List<Integer>> grams = new HashMap<>();
+        for (int i = 0; i < n; i++) {
+            countries[i] = named.get(i).country();
+            String name = folded[i] = named.get(i).folded();
+            for (int p = 0; p < name.length(); p++) {
+                if (isWordStart(name, p)) allSuffixes.add(new Suffix(name.substring(p), i));
+            }
+            for (int p = 0; p + 3 <= name.length(); p++) {
+                List<Integer> postings = grams.computeIfAbsent(name.substring(p, p + 3), k -> new ArrayList<>());
+                if (postings.isEmpty() || postings.get(postings.size() - 1) != i) postings.add(i);
+            }
+        }
+        allSuffixes.sort(Comparator.comparing(Suffix::text));
+        suffixes = new String[allSuffixes.size()];
+        suffixEntry = new int[allSuffixes.size()];
+        for (int i = 0; i < suffixes.length; i++) {
+            suffixes[i] = allSuffixes.get(i).text();
+            suffixEntry[i] = allSuffixes.get(i).entry();
+        }
+        trigrams = new HashMap<>(grams.size() * 2);
+        grams.forEach((gram, postings) -> trigrams.put(gram, postings.stream().mapToInt(Integer::intValue).toArray()));
+    }
+
+    public int size() {
+        return countries.length;
+    }
+
+    /** Up to {@code limit} countries whose name matches the query, best first; empty for a blank query. */
+    public List<Country> search(String query, int limit) {
+        String q = fold(query).strip();
+        if (q.isEmpty() || limit <= 0 || countries.length == 0) return List.of();
+
+        byte[] rank = new byte[countries.length];
+        Arrays.fill(rank, (byte) NONE);
+        int matched = 0;
+
+        int from = Arrays.binarySearch(suffixes, q);
+        if (from < 0) from = -from - 1;
+        for (int i = from; i < suffixes.length && suffixes[i].startsWith(q); i++) {
+            int entry = suffixEntry[i];
+            String name = folded[entry];
+            int r = name.length() == suffixes[i].length()
+                    ? (name.length() == q.length() ? EXACT : PREFIX)
+                    : WORD_PREFIX;
+            if (rank[entry] == NONE) matched++;
+            if (r < rank[entry]) rank[entry] = (byte) r;
+        }
+
+        if (q.length() >= 3) {
+            int[] candidates = rarestTrigramPostings(q);
+            for (int entry : candidates) {
+                if (rank[entry] == NONE && folded[entry].contains(q)) {
+                    rank[entry] = SUBSTRING;
+                    matched++;
+                }
+            }
+        }
+        if (matched == 0) return List.of();
+
+        // sort key: rank, then name length, then alphabetical position
+        long[] keys = new long[matched];
+        int k = 0;
+        for (int entry = 0; entry < rank.length; entry++) {
+            if (rank[entry] != NONE) {
+                keys[k++] = ((long) rank[entry] << 48) | ((long) Math.min(folded[entry].length(), 0xFFFF) << 32) | entry;
+            }
+        }
+        Arrays.sort(keys);
+        int size = Math.min(limit, matched);
+        List<Country> results = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            results.add(countries[(int) keys[i]]);
+        }
+        return results;
+    }
+
+    private int[] rarestTrigramPostings(String q) {
+        int[] rarest = null;
+        for (int p = 0; p + 3 <= q.length(); p++) {
+            int[] postings = trigrams.getOrDefault(q.substring(p, p + 3), NO_POSTINGS);
+            if (rarest == null || postings.length < rarest.length) rarest = postings;
+            if (rarest.length == 0) break;
+        }
+        return rarest;
+    }
+
+    private static boolean isWordStart(String name, int p) {
+        return Character.isLetterOrDigit(name.charAt(p)) && (p == 0 || !Character.isLetterOrDigit(name.charAt(p - 1)));
+    }
+
+    /** Lower case with diacritics removed ("Côte d'Ivoire" → "cote d'ivoire"); ASCII input skips normalization. */
+    static String fold(String s) {
+        for (int i = 0; i < s.length(); i++) {
+            if (s.charAt(i) >= 0x80) {
+                String decomposed = Normalizer.normalize(s, Normalizer.Form.NFD);
+                StringBuilder sb = new StringBuilder(decomposed.length());
+                for (int j = 0; j < decomposed.length(); j++) {
+                    char c = decomposed.charAt(j);
+                    if (Character.getType(c) != Character.NON_SPACING_MARK) sb.append(c);
+                }
+                return sb.toString().toLowerCase(Locale.ROOT);
+            }
+        }
+        return s.toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,48 @@
+package com.example.countrypostcodeservice.service;
+
+import com.example.countrypostcodeservice.exception.CountryImportException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * Optional warm-up: loads the whole dataset from /v3.1/all before the app reports ready.
+ * Spring Boot only switches readiness to ACCEPTING_TRAFFIC after all runners finish,
+ * so the instance is marked ready once loading is done (or has failed). On failure
+ * we log and carry on with lazy per-code fetching.
+ */
+@Component
+@ConditionalOnProperty(name = "countries.preload.enabled", havingValue = "true")
+public class CountryPreloader implements ApplicationRunner {
+
+    private static final Logger log = LoggerFactory.getLogger(CountryPreloader.class);
+
+    private final CountryImportService importer;
+    private final int batchSize;
+    private final Duration timeout;
+
+    public CountryPreloader(CountryImportService importer,
+                            @Value("${countries.preload.batch-size}") int batchSize,
+                            @Value("${countries.preload.timeout}") Duration timeout) {
+        this.importer = importer;
+        this.batchSize = batchSize;
+        this.timeout = timeout;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        long start = System.nanoTime();
+        try {
+            int count = importer.importAll(batchSize, timeout);
+            log.info("Preloaded {} countries in {} ms", count, (System.nanoTime() - start) / 1_000_000);
+        } catch (CountryImportException e) {
+            log.warn("Country preload failed, falling back to lazy fetching: {}", e.getMessage());
+        }
+    }
+}
@@ -1,38 +1,339 @@
 package com.example.countrypostcodeservice.service;
 
 import com.example.countrypostcodeservice.domain.Country;
+import com.example.countrypostcodeservice.domain.PostcodeNormalizer;
+import com.example.countrypostcodeservice.dto.CountryBatchResponse;
 import com.example.countrypostcodeservice.dto.CountryInfoResponse;
+import com.example.countrypostcodeservice.dto.PostcodeNormalizationResponse;
+import com.example.countrypostcodeservice.dto.PostcodeValidationResponse;
+import com.example.countrypostcodeservice.exception.CountryImportException;
 import com.example.countrypostcodeservice.repository.CountryRepository;
+import com.example.countrypostcodeservice.service.CountryMetrics.Lookup;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
 
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 
 @Service
 public class CountryQueryService {
+    private static final Logger log = LoggerFactory.getLogger(CountryQueryService.class);
+
     private final CountryRepository repo;
     private final CountryImportService importer;
+    private final CountryCache cache;
+    private final CountryFreshness freshness;
+    private final CountryMetrics metrics;
+    private final Scheduler jpaScheduler;
 
-    public CountryQueryService(CountryRepository repo, CountryImportService importer) {
+    public CountryQueryService(CountryRepository repo,
+                               CountryImportService importer,
+                               CountryCache cache,
+                               CountryFreshness freshness,
+                               CountryMetrics metrics,
+                               Scheduler jpaScheduler) {
         this.repo = repo;
         this.importer = importer;
+        this.cache = cache;
+        this.freshness = freshness;
+        this.metrics = metrics;
+        this.jpaScheduler = jpaScheduler;
     }
 
     public Optional<CountryInfoResponse> findOrFetchByCca2(String cca2) {
-        return repo.findById(cca2.toUpperCase())
-                .or(() -> importer.fetchAndSave(cca2))
-                .map(this::toDto);
+        return findOrFetch(cca2).map(this::toDto);
+    }
+
+    /**
+     * Non-blocking variant of {@link #findOrFetchByCca2}: cache hits complete immediately,
+     * the DB lookup runs on the bounded JPA scheduler and a miss goes upstream without
+     * blocking. Empty if the code is unknown.
+     */
+    public Mono<CountryInfoResponse> findOrFetchByCca2Async(String cca2) {
+        return findCountryAsync(cca2).map(this::toDto);
+    }
+
+    /** Like {@link #findOrFetchByCca2Async}, but returns the entity (e.g. to derive an ETag before mapping). */
+    public Mono<Country> findCountryAsync(String cca2) {
+        Country cached = cache.get(cca2);
+        if (cached != null) {
+            metrics.lookup(Lookup.CACHE);
+            return revalidateAsync(cached);
+        }
+        if (cache.isKnownMissing(cca2)) {
+            metrics.lookup(Lookup.NOT_FOUND);
+            return Mono.empty();
+        }
+
+        return Mono.fromCallable(() -> findStored(cca2))
+                .subscribeOn(jpaScheduler)
+                .flatMap(stored -> stored
+                        .map(c -> {
+                            metrics.lookup(Lookup.DATABASE);
+                            cache.put(c);
+                            return revalidateAsync(c);
+                        })
+                        .orElseGet(() -> importer.fetchAndSaveAsync(cca2)
+                                .doOnNext(c -> metrics.lookup(Lookup.UPSTREAM))
+                                .doOnError(CountryImportException.class, e -> metrics.lookup(Lookup.ERROR))
+                                .switchIfEmpty(Mono.fromRunnable(() -> {
+                                    metrics.lookup(Lookup.NOT_FOUND);
+                                    cache.putMissing(cca2);
+                                }))));
+    }
+
+    /** Validates a postcode against the country's postal regex (compiled once per cached country). */
+    public Optional<PostcodeValidationResponse> validatePostcode(String cca2, String postcode) {
+        return findOrFetch(cca2).map(c -> new PostcodeValidationResponse(
+                c.getCca2(),
+                postcode,
+                c.matchesPostalCode(postcode),
+                c.getPostalFormat()
+        ));
+    }
+
+    /**
+     * Cleans up a postcode and lays it out in the country's postalFormat (see {@link PostcodeNormalizer}).
+     * It is valid if the postal regex accepts the formatted or the compact form: upstream regexes
+     * often leave out the separators the format prints.
+     */
+    public Optional<PostcodeNormalizationResponse> normalizePostcode(String cca2, String postcode) {
+        return findOrFetch(cca2).map(c -> {
+            String compact = PostcodeNormalizer.compact(postcode);
+            String formatted = c.postcodeNormalizer().format(compact);
+            String normalized = formatted != null ? formatted : compact;
+            boolean valid = c.matchesPostalCode(normalized)
+                    || (formatted != null && c.matchesPostalCode(compact));
+            return new PostcodeNormalizationResponse(c.getCca2(), postcode, normalized, valid, c.getPostalFormat());
+        });
+    }
+
+    /**
+     * Looks up several codes at once: cache, then one indexed query per code type for the rest,
+     * then upstream for whatever is still missing. Codes may be alpha-2, alpha-3 or numeric,
+     * mixed; codes of any other shape are reported not found. Results keep the request order.
+     */
+    public CountryBatchResponse findOrFetchAll(List<String> codes) {
+        Set<String> requested = new LinkedHashSet<>();
+        for (String code : codes) {
+            if (code != null && !code.isBlank()) requested.add(CountryCache.normalize(code));
+        }
+
+        Map<String, Country> found = new HashMap<>();
+        List<String> uncached = new ArrayList<>();
+        for (String code : requested) {
+            Country cached = cache.get(code);
+            if (cached != null) found.put(code, cached);
+            // a code of no known shape can't be stored or fetched; upstream would only fail on it
+            else if (CountryCodeType.of(code) != CountryCodeType.UNKNOWN && !cache.isKnownMissing(code)) uncached.add(code);
+        }
+        metrics.lookups(Lookup.CACHE, found.size());
+        metrics.lookups(Lookup.NOT_FOUND, requested.size() - found.size() - uncached.size());
+
+        if (!uncached.isEmpty()) {
+            List<Country> stored = findAllStored(uncached);
+            for (Country c : stored) cache.put(c);
+            matchCodes(uncached, stored, found);
+            metrics.lookups(Lookup.DATABASE, stored.size());
+            List<String> misses = uncached.stream().filter(code -> !found.containsKey(code)).toList();
+            if (!misses.isEmpty()) {
+                List<Country> fetched;
+                try {
+                    fetched = importer.fetchAndSaveAll(misses);
+                } catch (CountryImportException e) {
+                    metrics.lookups(Lookup.ERROR, misses.size());
+                    throw e;
+                }
+                matchCodes(misses, fetched, found);
+                metrics.lookups(Lookup.UPSTREAM, fetched.size());
+                List<String> unknown = misses.stream().filter(code -> !found.containsKey(code)).toList();
+                unknown.forEach(cache::putMissing);
+                metrics.lookups(Lookup.NOT_FOUND, unknown.size());
+            }
+        }
+
+        // the same country may have been asked for by several of its codes
+        Map<String, Country> distinct = new HashMap<>();
+        for (Country c : found.values()) distinct.put(c.getCca2(), c);
+        List<String> expired = new ArrayList<>();
+        for (Country c : distinct.values()) {
+            switch (freshness.of(c)) {
+                case STALE -> refreshInBackground(c.getCca2());
+                case EXPIRED -> expired.add(c.getCca2());
+                case FRESH -> { }
+            }
+        }
+        if (!expired.isEmpty()) {
+            try {
+                Map<String, Country> refreshed = new HashMap<>();
+                for (Country c : importer.fetchAndSaveAll(expired)) refreshed.put(c.getCca2(), c);
+                found.replaceAll((code, c) -> refreshed.getOrDefault(c.getCca2(), c));
+                for (String cca2 : expired) {
+                    if (!refreshed.containsKey(cca2)) freshness.refreshFailed(cca2);
+                }
+            } catch (CountryImportException e) {
+                log.warn("Refresh of expired {} failed, serving stale data: {}", expired, e.getMessage());
+                expired.forEach(freshness::refreshFailed);
+            }
+        }
+
+        List<CountryInfoResponse> countries = new ArrayList<>(found.size());
+        List<String> notFound = new ArrayList<>();
+        for (String code : requested) {
+            Country c = found.get(code);
+            if (c != null) countries.add(toDto(c));
+            else notFound.add(code);
+        }
+        return new CountryBatchResponse(countries, notFound);
+    }
+
+    /** One query per code type present: findAllById for alpha-2, the indexed columns for the others. */
+    private List<Country> findAllStored(List<String> codes) {
+        Map<CountryCodeType, List<String>> byType = new EnumMap<>(CountryCodeType.class);
+        for (String code : codes) {
+            CountryCodeType type = CountryCodeType.of(code);
+            byType.computeIfAbsent(type == CountryCodeType.UNKNOWN ? CountryCodeType.ALPHA2 : type, t -> new ArrayList<>()).add(code);
+        }
+        List<Country> stored = new ArrayList<>();
+        byType.forEach((type, keys) -> stored.addAll(switch (type) {
+            case ALPHA3 -> repo.findByCca3In(keys);
+            case NUMERIC -> repo.findByCcn3In(keys);
+            case ALPHA2, UNKNOWN -> repo.findAllById(keys);
+        }));
+        return stored;
+    }
+
+    /** Records, for each requested code, the country among {@code countries} that carries it. */
+    private static void matchCodes(List<String> codes, List<Country> countries, Map<String, Country> found) {
+        for (String code : codes) {
+            for (Country c : countries) {
+                if (CountryCodeType.matches(c, code)) {
+                    found.put(code, c);
+                    break;
+                }
+            }
+        }
     }
 
     public Optional<CountryInfoResponse> refreshFromSource(String cca2) {
         return importer.fetchAndSave(cca2).map(this::toDto);
     }
 
+    /** Cache first, then DB, then upstream. Upstream 404s are negatively cached. */
+    private Optional<Country> findOrFetch(String cca2) {
+        Country known = cache.get(cca2);
+        if (known != null) {
+            metrics.lookup(Lookup.CACHE);
+        } else {
+            if (cache.isKnownMissing(cca2)) {
+                metrics.lookup(Lookup.NOT_FOUND);
+                return Optional.empty();
+            }
+
+            Optional<Country> stored = findStored(cca2);
+            if (stored.isEmpty()) {
+                Optional<Country> fetched;
+                try {
+                    fetched = importer.fetchAndSave(cca2);
+                } catch (CountryImportException e) {
+                    metrics.lookup(Lookup.ERROR);
+                    throw e;
+                }
+                if (fetched.isEmpty()) cache.putMissing(cca2);
+                metrics.lookup(fetched.isPresent() ? Lookup.UPSTREAM : Lookup.NOT_FOUND);
+                return fetched;
+            }
+            metrics.lookup(Lookup.DATABASE);
+            known = stored.get();
+            cache.put(known);
+        }
+        return Optional.of(revalidate(known));
+    }
+
+    /** Stored row for any kind of code; alpha-3 and numeric codes go through their indexed columns. */
+    private Optional<Country> findStored(String code) {
+        String key = CountryCache.normalize(code);
+        return switch (CountryCodeType.of(key)) {
+            case ALPHA3 -> repo.findByCca3(key);
+            case NUMERIC -> repo.findByCcn3(key);
+            case ALPHA2, UNKNOWN -> repo.findById(key);
+        };
+    }
+
+    /**
+     * Applies the freshness policy to a known country. Stale rows are returned as-is and
+     * refreshed in the background; expired rows are refreshed inline, falling back to the
+     * stale row if upstream fails or no longer knows the code. Either way the code is then
+     * left alone for the retry backoff (see {@link CountryFreshness#refreshFailed}).
+     */
+    private Country revalidate(Country c) {
+        return switch (freshness.of(c)) {
+            case FRESH -> c;
+            case STALE -> {
+                refreshInBackground(c.getCca2());
+                yield c;
+            }
+            case EXPIRED -> {
+                try {
+                    Optional<Country> refreshed = importer.fetchAndSave(c.getCca2());
+                    if (refreshed.isEmpty()) freshness.refreshFailed(c.getCca2());
+                    yield refreshed.orElse(c);
+                } catch (CountryImportException e) {
+                    log.warn("Refresh of expired {} failed, serving stale data: {}", c.getCca2(), e.getMessage());
+                    freshness.refreshFailed(c.getCca2());
+                    yield c;
+                }
+            }
+        };
+    }
+
+    private Mono<Country> revalidateAsync(Country c) {
+        return switch (freshness.of(c)) {
+            case FRESH -> Mono.just(c);
+            case STALE -> {
+                refreshInBackground(c.getCca2());
+                yield Mono.just(c);
+            }
+            case EXPIRED -> importer.fetchAndSaveAsync(c.getCca2())
+                    .switchIfEmpty(Mono.fromSupplier(() -> {
+                        freshness.refreshFailed(c.getCca2());
+                        return c;
+                    }))
+                    .onErrorResume(CountryImportException.class, e -> {
+                        log.warn("Refresh of expired {} failed, serving stale data: {}", c.getCca2(), e.getMessage());
+                        freshness.refreshFailed(c.getCca2());
+                        return Mono.just(c);
+                    });
+        };
+    }
+
+    /**
+     * Concurrent callers join the importer's in-flight fetch, so a code is refreshed once.
+     * Skipped while the circuit breaker is open: the stale row is served either way. A failed
+     * or empty refresh starts the code's retry backoff.
+     */
+    private void refreshInBackground(String cca2) {
+        if (importer.isCircuitOpen()) return;
+        importer.fetchAndSaveAsync(cca2)
+                .switchIfEmpty(Mono.fromRunnable(() -> freshness.refreshFailed(cca2)))
+                .subscribe(
+                        null,
+                        e -> {
+                            log.warn("Background refresh of {} failed: {}", cca2, e.getMessage());
+                            freshness.refreshFailed(cca2);
+                        });
+    }
+
     private CountryInfoResponse toDto(Country c) {
-        return new CountryInfoResponse(
-                c.getCca2(),
-                c.getCommonName(),
-                c.getPostalFormat(),
-                c.getPostalRegex()
-        );
+        return CountryInfoResponse.from(c);
     }
 }
@@ -0,0 +1,150 @@
+package com.example.countrypostcodeservice.service;
+
+import com.example.countrypostcodeservice.domain.Country;
+import com.example.countrypostcodeservice.exception.CountryImportException;
+import com.example.countrypostcodeservice.repository.CountryRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Background refresh of the stored dataset. Every interval, rows past the freshness soft TTL
+ * are re-fetched with bulk /v3.1/alpha?codes= calls of {@code batchSize} codes, at most one
+ * call per {@code batchInterval} so a full pass doesn't burst against REST Countries. Each
+ * result is compared with the stored row by content hash: only changed rows are written (one
+ * batched transaction per pass) and only their cached responses are invalidated; unchanged
+ * rows just get their fetchedAt renewed with a single bulk update.
+ */
+@Component
+@ConditionalOnProperty(name = "countries.refresh.enabled", havingValue = "true")
+public class CountryRefresher {
+
+    private static final Logger log = LoggerFactory.getLogger(CountryRefresher.class);
+
+    record Result(int checked, int changed, int skipped) {
+        static final Result NONE = new Result(0, 0, 0);
+    }
+
+    private final CountryRepository repo;
+    private final CountryImportService importer;
+    private final CountryCache cache;
+    private final CountrySnapshots snapshots;
+    private final CountryFreshness freshness;
+    private final CountryMetrics metrics;
+    private final TransactionTemplate tx;
+    private final int batchSize;
+    private final long batchIntervalNanos;
+
+    public CountryRefresher(CountryRepository repo,
+                            CountryImportService importer,
+                            CountryCache cache,
+                            CountrySnapshots snapshots,
+                            CountryFreshness freshness,
+                            CountryMetrics metrics,
+                            TransactionTemplate tx,
+                            @Value("${countries.refresh.batch-size}") int batchSize,
+                            @Value("${countries.refresh.batch-interval}") Duration batchInterval) {
+        this.repo = repo;
+        this.importer = importer;
+        this.cache = cache;
+        this.snapshots = snapshots;
+        this.freshness = freshness;
+        this.metrics = metrics;
+        this.tx = tx;
+        this.batchSize = batchSize;
+        this.batchIntervalNanos = batchInterval.toNanos();
+    }
+
+    @Scheduled(initialDelayString = "${countries.refresh.interval}",
+               fixedDelayString = "${countries.refresh.interval}")
+    public void refreshScheduled() {
+        long start = System.nanoTime();
+        Result result = refresh();
+        if (result.checked() > 0) {
+            log.info("Refreshed {} countries in {} ms: {} changed, {} skipped", result.checked(),
+                    (System.nanoTime() - start) / 1_000_000, result.changed(), result.skipped());
+        }
+    }
+
+    Result refresh() {
+        if (importer.isCircuitOpen()) {
+            log.debug("Skipping country refresh while the REST Countries circuit breaker is open");
+            return Result.NONE;
+        }
+        List<String> due = new ArrayList<>();
+        for (Country c : repo.findAll()) {
+            if (freshness.of(c) != CountryFreshness.State.FRESH) due.add(c.getCca2());
+        }
+        if (due.isEmpty()) return Result.NONE;
+
+        List<Country> fetched = fetchRateLimited(due);
+        Map<String, Country> changed = new HashMap<>();
+        List<Country> unchanged = new ArrayList<>();
+        tx.executeWithoutResult(status -> {
+            Map<String, Country> stored = new HashMap<>();
+            for (Country c : repo.findAllById(due)) stored.put(c.getCca2(), c);
+            List<Country> writes = new ArrayList<>();
+            for (Country f : fetched) {
+                Country s = stored.get(f.getCca2());
+                if (s != null && s.contentHash().equals(f.contentHash())) unchanged.add(f);
+                else writes.add(f);
+            }
+            for (Country saved : repo.saveAll(writes)) changed.put(saved.getCca2(), saved);
+            if (!unchanged.isEmpty()) {
+                repo.markFetched(unchanged.stream().map(Country::getCca2).toList(), Instant.now());
+            }
+        });
+
+        for (Country c : changed.values()) {
+            snapshots.invalidate(c.getCca2());
+        }
+        cache.putAll(changed.values());
+        List<Country> renewed = new ArrayList<>(unchanged.size());
+        for (Country f : unchanged) {
+            Country cached = cache.get(f.getCca2());
+            renewed.add(cached != null ? cached.withFetchedAt(f.getFetchedAt()) : f);
+        }
+        cache.putAll(renewed);
+
+        Result result = new Result(due.size(), changed.size(), due.size() - changed.size());
+        metrics.refreshed(result.checked(), result.changed(), result.skipped());
+        return result;
+    }
+
+    /**
+     * Fetches the codes in batches, starting a call at most once per batch interval. Stops at the
+     * first failure; whatever was fetched until then is still applied.
+     */
+    private List<Country> fetchRateLimited(List<String> codes) {
+        List<Country> fetched = new ArrayList<>(codes.size());
+        long nextCall = System.nanoTime();
+        for (int from = 0; from < codes.size(); from += batchSize) {
+            List<String> batch = codes.subList(from, Math.min(from + batchSize, codes.size()));
+            try {
+                long wait = nextCall - System.nanoTime();
+                if (wait > 0) TimeUnit.NANOSECONDS.sleep(wait);
+                nextCall = System.nanoTime() + batchIntervalNanos;
+                fetched.addAll(importer.fetchAll(batch));
+            } catch (CountryImportException e) {
+                log.warn("Country refresh stopped after {} of {} codes: {}", from, codes.size(), e.getMessage());
+                break;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        return fetched;
+    }
+}
@@ -0,0 +1,47 @@
+package com.example.countrypostcodeservice.service;
+
+import com.example.countrypostcodeservice.domain.Country;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+
+/**
+ * Name search / autocomplete over the known countries. Searches run against an immutable
+ * {@link CountryNameIndex}; every write to the countries table goes through {@link CountryCache},
+ * so when the cache's version moves on the index is rebuilt from its contents (once, by whichever
+ * search notices first) and swapped in.
+ */
+@Service
+public class CountrySearch {
+
+    public static final int MAX_LIMIT = 50;
+
+    private record Built(long version, CountryNameIndex index) { }
+
+    private final CountryCache cache;
+    private volatile Built built = new Built(-1, CountryNameIndex.EMPTY);
+
+    public CountrySearch(CountryCache cache) {
+        this.cache = cache;
+    }
+
+    /** Best matches for the query, at most {@code limit} (capped at {@value #MAX_LIMIT}). */
+    public List<Country> search(String query, int limit) {
+        return index().search(query, Math.min(limit, MAX_LIMIT));
+    }
+
+    CountryNameIndex index() {
+        Built current = built;
+        long version = cache.version();
+        if (current.version() != version) {
+            synchronized (this) {
+                current = built;
+                if (current.version() != version) {
+                    current = new Built(version, new CountryNameIndex(cache.all()));
+                    built = current;
+                }
+            }
+        }
+        return current.index();
+    }
+}
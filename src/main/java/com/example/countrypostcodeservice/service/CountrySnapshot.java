@@ -0,0 +1,51 @@
+package com.example.countrypostcodeservice.service;
+
+import com.example.countrypostcodeservice.domain.Country;
+
+import java.util.Locale;
+
+/**
+ * Immutable, ready-to-write view of one country: the serialized {@code CountryInfoResponse}
+ * in each supported encoding and the quoted ETag of the JSON form. Callers must not modify
+ * the byte arrays.
+ */
+public record CountrySnapshot(
+        Country country,
+        String etag,
+        byte[] json,
+        byte[] cbor,
+        byte[] smile
+) {
+
+    /** Wire formats a country can be served in; JSON is the default. */
+    public enum Encoding {
+        JSON("application/json"),
+        CBOR("application/cbor"),
+        SMILE("application/x-jackson-smile");
+
+        private final String mediaType;
+
+        Encoding(String mediaType) {
+            this.mediaType = mediaType;
+        }
+
+        public String mediaType() {
+            return mediaType;
+        }
+    }
+
+    public byte[] body(Encoding encoding) {
+        return switch (encoding) {
+            case JSON -> json;
+            case CBOR -> cbor;
+            case SMILE -> smile;
+        };
+    }
+
+    /** Strong ETags must differ per representation, so binary encodings get a suffix ({@code "hash-cbor"}). */
+    public String etag(Encoding encoding) {
+        return encoding == Encoding.JSON
+                ? etag
+                : etag.substring(0, etag.length() - 1) + '-' + encoding.name().toLowerCase(Locale.ROOT) + '"';
+    }
+}
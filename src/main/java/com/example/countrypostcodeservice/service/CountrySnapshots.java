@@ -0,0 +1,61 @@
+package com.example.countrypostcodeservice.service;
+
+import com.example.countrypostcodeservice.domain.Country;
+import com.example.countrypostcodeservice.dto.CountryInfoResponse;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Per-country pre-serialized responses. A snapshot is built the first time a country is
+ * served and reused until the country's content hash changes (i.e. a refresh actually
+ * changed the row), so a hit costs a map lookup and a hash comparison instead of a DTO
+ * allocation plus Jackson serialization. Every snapshot holds the JSON, CBOR and Smile forms,
+ * all written with the application's mapper configuration.
+ */
+@Component
+public class CountrySnapshots {
+
+    private final ObjectWriter writer;
+    private final ObjectWriter cborWriter;
+    private final ObjectWriter smileWriter;
+    private final Map<String, CountrySnapshot> snapshots = new ConcurrentHashMap<>();
+
+    public CountrySnapshots(ObjectMapper mapper) {
+        this.writer = mapper.writerFor(CountryInfoResponse.class);
+        this.cborWriter = mapper.copyWith(new CBORFactory()).writerFor(CountryInfoResponse.class);
+        this.smileWriter = mapper.copyWith(new SmileFactory()).writerFor(CountryInfoResponse.class);
+    }
+
+    public CountrySnapshot snapshotOf(Country country) {
+        CountrySnapshot current = snapshots.get(country.getCca2());
+        if (current != null && (current.country() == country
+                || current.country().contentHash().equals(country.contentHash()))) {
+            return current;
+        }
+        CountrySnapshot rebuilt = build(country);
+        snapshots.put(country.getCca2(), rebuilt);
+        return rebuilt;
+    }
+
+    /** Drops the pre-serialized response for a code whose row changed. */
+    public void invalidate(String cca2) {
+        snapshots.remove(cca2);
+    }
+
+    private CountrySnapshot build(Country country) {
+        try {
+            CountryInfoResponse dto = CountryInfoResponse.from(country);
+            return new CountrySnapshot(country, '"' + country.contentHash() + '"',
+                    writer.writeValueAsBytes(dto), cborWriter.writeValueAsBytes(dto), smileWriter.writeValueAsBytes(dto));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not serialize country " + country.getCca2(), e);
+        }
+    }
+}
@@ -0,0 +1,162 @@
+package com.example.countrypostcodeservice.service;
+
+import com.example.countrypostcodeservice.domain.Country;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.zip.CRC32C;
+
+/**
+ * Binary file format for a copy of the countries table, read back through a memory map.
+ * <pre>
+ * header  magic "CPCS" | u16 version | u16 reserved | i32 count | i32 payload length | i32 CRC32C of payload
+ * payload count x (2 ASCII bytes cca2 | i64 fetchedAt epoch millis, or -1 | name | format | regex | cca3 | ccn3)
+ * strings i16 UTF-8 length, or -1 for null, followed by the bytes
+ * </pre>
+ * Version 1 files (without cca3 and ccn3) are still read. Readers reject other versions,
+ * truncated files and checksum mismatches with an {@link IOException}.
+ */
+public final class CountryTableSnapshot {
+
+    static final int MAGIC = 0x43504353;   // "CPCS"
+    static final short VERSION = 2;
+    private static final short VERSION_WITHOUT_ALT_CODES = 1;
+    static final int HEADER_BYTES = 20;
+
+    private CountryTableSnapshot() {}
+
+    /** Encodes {@code countries} and atomically replaces {@code file} with the result. */
+    public static void write(Path file, Collection<Country> countries) throws IOException {
+        ByteBuffer payload = encodePayload(countries);
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES)
+                .putInt(MAGIC)
+                .putShort(VERSION)
+                .putShort((short) 0)
+                .putInt(countries.size())
+                .putInt(payload.remaining())
+                .putInt(checksum(payload.duplicate()))
+                .flip();
+
+        Path dir = file.toAbsolutePath().getParent();
+        Files.createDirectories(dir);
+        Path tmp = Files.createTempFile(dir, file.getFileName().toString(), ".tmp");
+        try {
+            try (FileChannel ch = FileChannel.open(tmp, StandardOpenOption.WRITE)) {
+                while (header.hasRemaining()) ch.write(header);
+                while (payload.hasRemaining()) ch.write(payload);
+                ch.force(true);
+            }
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    /** Maps {@code file} read-only, verifies header and checksum, and decodes every row. */
+    public static List<Country> read(Path file) throws IOException {
+        MappedByteBuffer buf;
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ)) {
+            buf = ch.map(FileChannel.MapMode.READ_ONLY, 0, ch.size());
+        }
+        if (buf.remaining() < HEADER_BYTES || buf.getInt() != MAGIC) {
+            throw new IOException("Not a country snapshot: " + file);
+        }
+        short version = buf.getShort();
+        if (version != VERSION && version != VERSION_WITHOUT_ALT_CODES) {
+            throw new IOException("Unsupported country snapshot version " + version + " in " + file);
+        }
+        buf.getShort();
+        int count = buf.getInt();
+        int length = buf.getInt();
+        int expected = buf.getInt();
+        if (count < 0 || length < 0 || length != buf.remaining()) {
+            throw new IOException("Truncated country snapshot: " + file);
+        }
+        ByteBuffer payload = buf.slice();
+        if (checksum(payload.duplicate()) != expected) {
+            throw new IOException("Checksum mismatch in country snapshot: " + file);
+        }
+
+        try {
+            List<Country> countries = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                String cca2 = new String(new byte[] {payload.get(), payload.get()}, StandardCharsets.US_ASCII);
+                long fetchedAt = payload.getLong();
+                String name = getString(payload);
+                String format = getString(payload);
+                String regex = getString(payload);
+                String cca3 = version == VERSION ? getString(payload) : null;
+                String ccn3 = version == VERSION ? getString(payload) : null;
+                countries.add(new Country(cca2, cca3, ccn3, name, format, regex,
+                        fetchedAt < 0 ? null : Instant.ofEpochMilli(fetchedAt)));
+            }
+            return countries;
+        } catch (BufferUnderflowException | IllegalArgumentException e) {
+            throw new IOException("Malformed country snapshot: " + file, e);
+        }
+    }
+
+    private static ByteBuffer encodePayload(Collection<Country> countries) {
+        List<byte[][]> strings = new ArrayList<>(countries.size());
+        int size = 0;
+        for (Country c : countries) {
+            byte[][] s = {utf8(c.getCommonName()), utf8(c.getPostalFormat()), utf8(c.getPostalRegex()),
+                          utf8(c.getCca3()), utf8(c.getCcn3())};
+            strings.add(s);
+            size += 2 + 8;
+            for (byte[] b : s) size += 2 + (b == null ? 0 : b.length);
+        }
+
+        ByteBuffer payload = ByteBuffer.allocate(size);
+        int i = 0;
+        for (Country c : countries) {
+            payload.put(c.getCca2().getBytes(StandardCharsets.US_ASCII), 0, 2);
+            payload.putLong(c.getFetchedAt() == null ? -1 : c.getFetchedAt().toEpochMilli());
+            for (byte[] b : strings.get(i++)) putString(payload, b);
+        }
+        return payload.flip();
+    }
+
+    private static byte[] utf8(String s) {
+        if (s == null) return null;
+        byte[] b = s.getBytes(StandardCharsets.UTF_8);
+        if (b.length > Short.MAX_VALUE) {
+            throw new IllegalArgumentException("String too long for snapshot: " + b.length + " bytes");
+        }
+        return b;
+    }
+
+    private static void putString(ByteBuffer buf, byte[] b) {
+        if (b == null) {
+            buf.putShort((short) -1);
+        } else {
+            buf.putShort((short) b.length).put(b);
+        }
+    }
+
+    private static String getString(ByteBuffer buf) {
+        short len = buf.getShort();
+        if (len < 0) return null;
+        byte[] b = new byte[len];
+        buf.get(b);
+        return new String(b, StandardCharsets.UTF_8);
+    }
+
+    private static int checksum(ByteBuffer payload) {
+        CRC32C crc = new CRC32C();
+        crc.update(payload);
+        return (int) crc.getValue();
+    }
+}
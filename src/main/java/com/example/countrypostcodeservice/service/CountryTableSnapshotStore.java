@@ -0,0 +1,149 @@
+package com.example.countrypostcodeservice.service;
+
+import com.example.countrypostcodeservice.domain.Country;
+import com.example.countrypostcodeservice.repository.CountryRepository;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.data.domain.Sort;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Keeps a {@link CountryTableSnapshot} of the countries table on local disk so a restart
+ * doesn't start cold. At startup (before readiness, and before the optional preloader) the
+ * snapshot is mapped and put straight into the cache, so lookups are served from memory
+ * without touching REST Countries; H2 is repopulated from it in the background. The file is
+ * rewritten periodically when the table has changed, and once more on shutdown.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+@ConditionalOnProperty(name = "countries.snapshot.enabled", havingValue = "true")
+public class CountryTableSnapshotStore implements ApplicationRunner {
+
+    private static final Logger log = LoggerFactory.getLogger(CountryTableSnapshotStore.class);
+
+    private final CountryRepository repo;
+    private final CountryCache cache;
+    private final Scheduler jpaScheduler;
+    private final Path file;
+
+    /** Fingerprint of the rows last written or loaded; unchanged tables aren't rewritten. */
+    private volatile String lastWritten;
+
+    public CountryTableSnapshotStore(CountryRepository repo,
+                                     CountryCache cache,
+                                     Scheduler jpaScheduler,
+                                     @Value("${countries.snapshot.path}") Path file) {
+        this.repo = repo;
+        this.cache = cache;
+        this.jpaScheduler = jpaScheduler;
+        this.file = file;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        load();
+    }
+
+    /** @return number of countries loaded; 0 if there is no usable snapshot */
+    int load() {
+        if (!Files.exists(file)) {
+            log.info("No country snapshot at {}, starting cold", file);
+            return 0;
+        }
+        long start = System.nanoTime();
+        List<Country> countries;
+        try {
+            countries = CountryTableSnapshot.read(file);
+        } catch (IOException e) {
+            log.warn("Ignoring unreadable country snapshot: {}", e.getMessage());
+            return 0;
+        }
+        cache.putAll(countries);
+        lastWritten = fingerprint(countries);
+        log.info("Loaded {} countries from snapshot {} in {} ms",
+                countries.size(), file, (System.nanoTime() - start) / 1_000_000);
+
+        Mono.fromRunnable(() -> restore(countries))
+                .subscribeOn(jpaScheduler)
+                .subscribe(null, e -> log.warn("Restoring countries table from snapshot failed: {}", e.getMessage()));
+        return countries.size();
+    }
+
+    /**
+     * Writes snapshot rows the table doesn't have, or has an older copy of. This runs while
+     * requests are already served, so a row a refresh stored since startup is left alone: the
+     * table is checked first, and the cache (which every write path updates) right before the
+     * write, for refreshes that committed in between.
+     */
+    private void restore(List<Country> countries) {
+        Map<String, Instant> stored = new HashMap<>();
+        for (Country c : repo.findAllById(countries.stream().map(Country::getCca2).toList())) {
+            stored.put(c.getCca2(), c.getFetchedAt());
+        }
+        List<Country> restore = countries.stream()
+                .filter(c -> !stored.containsKey(c.getCca2()) || isNewer(c.getFetchedAt(), stored.get(c.getCca2())))
+                .filter(c -> !refreshedSince(c))
+                .toList();
+        if (!restore.isEmpty()) repo.saveAll(restore);
+        log.debug("Restored {} of {} countries from snapshot", restore.size(), countries.size());
+    }
+
+    /** True if the cache holds a newer copy than the snapshot's, i.e. a refresh stored one. */
+    private boolean refreshedSince(Country snapshot) {
+        Country cached = cache.get(snapshot.getCca2());
+        return cached != null && isNewer(cached.getFetchedAt(), snapshot.getFetchedAt());
+    }
+
+    private static boolean isNewer(Instant snapshot, Instant stored) {
+        return snapshot != null && (stored == null || snapshot.isAfter(stored));
+    }
+
+    @Scheduled(initialDelayString = "${countries.snapshot.interval}",
+               fixedDelayString = "${countries.snapshot.interval}")
+    public void writeIfChanged() {
+        List<Country> countries = repo.findAll(Sort.by("cca2"));
+        if (countries.isEmpty()) return;
+
+        String fingerprint = fingerprint(countries);
+        if (fingerprint.equals(lastWritten)) return;
+        try {
+            CountryTableSnapshot.write(file, countries);
+            lastWritten = fingerprint;
+            log.debug("Wrote {} countries to snapshot {}", countries.size(), file);
+        } catch (IOException e) {
+            log.warn("Writing country snapshot {} failed: {}", file, e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    void writeOnShutdown() {
+        writeIfChanged();
+    }
+
+    /** Row content hashes plus fetch times, so a refresh that only renews fetchedAt is written too. */
+    private static String fingerprint(List<Country> countries) {
+        StringBuilder sb = new StringBuilder(countries.size() * 48);
+        for (Country c : countries) {
+            sb.append(c.contentHash()).append(c.getFetchedAt()).append('\n');
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,31 @@
+package com.example.countrypostcodeservice.service;
+
+/** RFC 4180 field quoting shared by the CSV writers. */
+final class Csv {
+
+    private Csv() {}
+
+    /** Appends the field, quoted (with inner quotes doubled) if it holds a comma, quote or line break; null as empty. */
+    static StringBuilder append(StringBuilder line, String value) {
+        if (value == null) return line;
+        boolean quote = false;
+        for (int i = 0; i < value.length() && !quote; i++) {
+            char ch = value.charAt(i);
+            quote = ch == ',' || ch == '"' || ch == '\n' || ch == '\r';
+        }
+        if (!quote) return line.append(value);
+        line.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char ch = value.charAt(i);
+            if (ch == '"') line.append('"');
+            line.append(ch);
+        }
+        return line.append('"');
+    }
+
+    /** Inverse of {@link #append} for one field: strips surrounding quotes and undoubles inner ones. */
+    static String unquote(String field) {
+        if (field.length() < 2 || field.charAt(0) != '"' || field.charAt(field.length() - 1) != '"') return field;
+        return field.substring(1, field.length() - 1).replace("\"\"", "\"");
+    }
+}
@@ -0,0 +1,56 @@
+package com.example.countrypostcodeservice.service;
+
+import com.example.countrypostcodeservice.domain.PostcodeNormalizer;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.TreeSet;
+
+/**
+ * Reverse postcode lookup: which known countries could a postcode belong to. Backed by a
+ * {@link PostcodeShapeIndex} that is rebuilt from {@link CountryCache} when its version moves
+ * on, like {@link CountrySearch}.
+ */
+@Service
+public class PostcodeCountryLookup {
+
+    private record Built(long version, PostcodeShapeIndex index) { }
+
+    private final CountryCache cache;
+    private volatile Built built = new Built(-1, PostcodeShapeIndex.EMPTY);
+
+    public PostcodeCountryLookup(CountryCache cache) {
+        this.cache = cache;
+    }
+
+    /**
+     * Codes of the countries whose postal regex accepts the postcode as given (trimmed) or its
+     * compact form (letters and digits, upper-cased), since regexes differ on separators and case.
+     */
+    public List<String> countriesFor(String postcode) {
+        PostcodeShapeIndex index = index();
+        String trimmed = postcode.strip();
+        String compact = PostcodeNormalizer.compact(trimmed);
+        List<String> asGiven = index.countriesFor(trimmed);
+        if (compact.equals(trimmed) || compact.isEmpty()) return asGiven;
+
+        TreeSet<String> codes = new TreeSet<>(asGiven);
+        codes.addAll(index.countriesFor(compact));
+        return List.copyOf(codes);
+    }
+
+    PostcodeShapeIndex index() {
+        Built current = built;
+        long version = cache.version();
+        if (current.version() != version) {
+            synchronized (this) {
+                current = built;
+                if (current.version() != version) {
+                    current = new Built(version, new PostcodeShapeIndex(cache.all()));
+                    built = current;
+                }
+            }
+        }
+        return current.index();
+    }
+}
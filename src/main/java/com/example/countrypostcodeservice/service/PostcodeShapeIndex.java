@@ -0,0 +1,85 @@
+package com.example.countrypostcodeservice.service;
+
+import com.example.countrypostcodeservice.domain.Country;
+import com.example.countrypostcodeservice.domain.PostalCodeMatcher;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Immutable reverse index from a postcode to the countries whose postal regex accepts it.
+ * Each country's compiled matcher contributes its possible lengths and first characters to
+ * two bitset tables (one bit per country); a lookup ANDs the row for the input's length with
+ * the row for its first character and runs only the surviving matchers, instead of every
+ * country's regex.
+ */
+public final class PostcodeShapeIndex {
+
+    public static final PostcodeShapeIndex EMPTY = new PostcodeShapeIndex(List.of());
+
+    /** Length rows 0..62 are exact, row 63 holds every length of 63 or more. */
+    private static final int LENGTHS = 64;
+    private static final int ASCII = 128;
+
+    private final String[] codes;
+    private final PostalCodeMatcher[] matchers;
+    private final int words;
+    private final long[] byLength;
+    private final long[] byFirstChar;
+    /** Countries that might accept a non-ASCII first character (regexes left to java.util.regex). */
+    private final long[] nonAsciiFirst;
+
+    public PostcodeShapeIndex(Collection<Country> source) {
+        List<Country> countries = new ArrayList<>(source);
+        countries.sort(Comparator.comparing(Country::getCca2));
+        int n = countries.size();
+        codes = new String[n];
+        matchers = new PostalCodeMatcher[n];
+        words = (n + 63) >>> 6;
+        byLength = new long[LENGTHS * words];
+        byFirstChar = new long[ASCII * words];
+        nonAsciiFirst = new long[words];
+        for (int i = 0; i < n; i++) {
+            Country c = countries.get(i);
+            PostalCodeMatcher m = c.postalMatcher();
+            codes[i] = c.getCca2();
+            matchers[i] = m;
+            int word = i >>> 6;
+            long bit = 1L << i;
+            long lengths = m.lengthMask();
+            for (int len = 0; len < LENGTHS; len++) {
+                if ((lengths & 1L << len) != 0) byLength[len * words + word] |= bit;
+            }
+            for (char ch = 0; ch < ASCII; ch++) {
+                if (m.canStartWith(ch)) byFirstChar[ch * words + word] |= bit;
+            }
+            if (!m.isCompiled()) nonAsciiFirst[word] |= bit;
+        }
+    }
+
+    public int size() {
+        return codes.length;
+    }
+
+    /** Codes of every country whose postal regex fully matches the postcode, in code order. */
+    public List<String> countriesFor(CharSequence postcode) {
+        int length = postcode.length();
+        int lengthRow = Math.min(length, LENGTHS - 1) * words;
+        List<String> result = new ArrayList<>();
+        for (int w = 0; w < words; w++) {
+            long candidates = byLength[lengthRow + w];
+            if (length > 0) {
+                char first = postcode.charAt(0);
+                candidates &= first < ASCII ? byFirstChar[first * words + w] : nonAsciiFirst[w];
+            }
+            while (candidates != 0) {
+                int i = (w << 6) + Long.numberOfTrailingZeros(candidates);
+                candidates &= candidates - 1;
+                if (matchers[i].matches(postcode)) result.add(codes[i]);
+            }
+        }
+        return result;
+    }
+}
@@ -8,6 +8,12 @@ class RestCountry {
     @JsonProperty("cca2")
     public String cca2;
 
+    @JsonProperty("cca3")
+    public String cca3;
+
+    @JsonProperty("ccn3")
+    public String ccn3;
+
     @JsonProperty("name")
     public Name name;
 
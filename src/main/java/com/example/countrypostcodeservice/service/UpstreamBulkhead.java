@@ -0,0 +1,116 @@
+package com.example.countrypostcodeservice.service;
+
+import com.example.countrypostcodeservice.exception.UpstreamUnavailableException;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoSink;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Non-blocking bulkhead: at most {@code maxConcurrent} calls run at once, up to
+ * {@code maxQueued} more wait for a slot (without holding a thread) for at most
+ * {@code maxWait}, and anything beyond that is rejected straight away.
+ */
+final class UpstreamBulkhead {
+
+    private final int maxConcurrent;
+    private final int maxQueued;
+    private final Duration maxWait;
+
+    /** Guarded by {@code this}. */
+    private final ArrayDeque<Permit> queue = new ArrayDeque<>();
+    private int active;
+
+    UpstreamBulkhead(int maxConcurrent, int maxQueued, Duration maxWait) {
+        this.maxConcurrent = maxConcurrent;
+        this.maxQueued = maxQueued;
+        this.maxWait = maxWait;
+    }
+
+    /** Runs {@code call} once a slot is free; the slot is released on completion, error or cancel. */
+    <T> Mono<T> apply(Mono<T> call) {
+        return Mono.usingWhen(acquire(), permit -> call,
+                permit -> Mono.fromRunnable(permit::release),
+                (permit, e) -> Mono.fromRunnable(permit::release),
+                permit -> Mono.fromRunnable(permit::release));
+    }
+
+    synchronized int active() {
+        return active;
+    }
+
+    synchronized int queued() {
+        return queue.size();
+    }
+
+    private Mono<Permit> acquire() {
+        return Mono.<Permit>create(sink -> {
+            Permit permit = new Permit(sink);
+            synchronized (this) {
+                if (active < maxConcurrent) {
+                    active++;
+                    permit.state.set(Permit.GRANTED);
+                } else if (queue.size() < maxQueued) {
+                    queue.add(permit);
+                } else {
+                    sink.error(new UpstreamUnavailableException("Too many concurrent REST Countries calls", null));
+                    return;
+                }
+            }
+            sink.onCancel(permit::cancel);
+            if (permit.state.get() == Permit.GRANTED) sink.success(permit);
+        }).timeout(maxWait, Mono.error(() -> new UpstreamUnavailableException(
+                "Timed out waiting for a free REST Countries call slot", null)));
+    }
+
+    /** Hands the slot to the next live waiter, or frees it. */
+    private void releaseSlot() {
+        Permit next;
+        synchronized (this) {
+            do {
+                next = queue.poll();
+            } while (next != null && !next.state.compareAndSet(Permit.WAITING, Permit.GRANTED));
+            if (next == null) {
+                active--;
+                return;
+            }
+        }
+        next.sink.success(next);
+    }
+
+    /**
+     * One caller's claim on a slot. A sink delivers either its value or its cancel callback, never
+     * both, so a slot granted to a waiter that was cancelled in the meantime is passed on from
+     * {@link #cancel}; one that was delivered is released by {@link #apply}.
+     */
+    private final class Permit {
+        static final int WAITING = 0;
+        static final int GRANTED = 1;
+        static final int CANCELLED = 2;
+        static final int RELEASED = 3;
+
+        final AtomicInteger state = new AtomicInteger(WAITING);
+        final MonoSink<Permit> sink;
+
+        Permit(MonoSink<Permit> sink) {
+            this.sink = sink;
+        }
+
+        void cancel() {
+            if (state.compareAndSet(WAITING, CANCELLED)) {
+                synchronized (UpstreamBulkhead.this) {
+                    queue.remove(this);
+                }
+            } else {
+                release();
+            }
+        }
+
+        /** Idempotent: only the first release of a granted slot frees it. */
+        void release() {
+            if (state.compareAndSet(GRANTED, RELEASED)) releaseSlot();
+        }
+    }
+}
@@ -0,0 +1,161 @@
+package com.example.countrypostcodeservice.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClientRequestException;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.Exceptions;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.util.retry.Retry;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Deadlines, retries and hedging for REST Countries calls. Each attempt gets its own timeout;
+ * transient failures (timeouts, connection errors, 429/502/503/504) are retried with exponential
+ * backoff and jitter, and the whole call is bounded by an overall deadline. All upstream calls
+ * are idempotent GETs, so retrying and hedging them is safe.
+ * <p>
+ * With hedging on, an attempt that hasn't answered once the recent p95 latency has passed gets a
+ * second, identical request; whichever answers with a value first wins and the other is cancelled.
+ */
+@Component
+public class UpstreamCallPolicy {
+
+    private final Duration attemptTimeout;
+    private final Duration deadline;
+    private final int maxRetries;
+    private final Duration minBackoff;
+    private final Duration maxBackoff;
+    private final double jitter;
+    private final boolean hedge;
+    private final Duration hedgeInitialDelay;
+    private final Duration hedgeMinDelay;
+    private final LatencyWindow latencies = new LatencyWindow(256);
+
+    public UpstreamCallPolicy(@Value("${countries.upstream.attempt-timeout}") Duration attemptTimeout,
+                              @Value("${countries.upstream.deadline}") Duration deadline,
+                              @Value("${countries.upstream.retry.max-retries}") int maxRetries,
+                              @Value("${countries.upstream.retry.min-backoff}") Duration minBackoff,
+                              @Value("${countries.upstream.retry.max-backoff}") Duration maxBackoff,
+                              @Value("${countries.upstream.retry.jitter}") double jitter,
+                              @Value("${countries.upstream.hedge.enabled}") boolean hedge,
+                              @Value("${countries.upstream.hedge.initial-delay}") Duration hedgeInitialDelay,
+                              @Value("${countries.upstream.hedge.min-delay}") Duration hedgeMinDelay) {
+        this.attemptTimeout = attemptTimeout;
+        this.deadline = deadline;
+        this.maxRetries = maxRetries;
+        this.minBackoff = minBackoff;
+        this.maxBackoff = maxBackoff;
+        this.jitter = jitter;
+        this.hedge = hedge;
+        this.hedgeInitialDelay = hedgeInitialDelay;
+        this.hedgeMinDelay = hedgeMinDelay;
+    }
+
+    /** Applies the policy to a cold upstream call; every retry or hedge re-subscribes to it. */
+    public <T> Mono<T> apply(Mono<T> call) {
+        Mono<T> attempt = timed(call).timeout(attemptTimeout);
+        if (hedge) {
+            Mono<T> primary = attempt;
+            attempt = Mono.defer(() -> hedged(primary));
+        }
+        if (maxRetries > 0) {
+            attempt = attempt.retryWhen(Retry.backoff(maxRetries, minBackoff)
+                    .maxBackoff(maxBackoff)
+                    .jitter(jitter)
+                    .filter(UpstreamCallPolicy::isTransient)
+                    .onRetryExhaustedThrow((spec, signal) -> signal.failure()));
+        }
+        return attempt.timeout(deadline);
+    }
+
+    /**
+     * The first attempt to answer with a value wins, so one that fails while the other is still in
+     * flight doesn't decide the call. A non-transient failure before the hedge is sent cancels it.
+     * When neither answers, the first failure is surfaced rather than firstWithValue's wrapper.
+     */
+    private <T> Mono<T> hedged(Mono<T> primary) {
+        Sinks.Empty<Void> failedFast = Sinks.empty();
+        Mono<T> first = primary.doOnError(e -> {
+            if (!isTransient(e)) failedFast.tryEmitEmpty();
+        });
+        Mono<T> second = Mono.delay(hedgeDelay())
+                .takeUntilOther(failedFast.asMono())
+                .flatMap(tick -> primary);
+        return Mono.firstWithValue(first, second)
+                .onErrorMap(NoSuchElementException.class, UpstreamCallPolicy::firstFailure);
+    }
+
+    private static Throwable firstFailure(NoSuchElementException e) {
+        Throwable[] suppressed = e.getSuppressed();
+        if (suppressed.length > 0) return suppressed[0];
+        List<Throwable> causes = Exceptions.unwrapMultiple(e.getCause());
+        return causes.isEmpty() || causes.get(0) == null ? e : causes.get(0);
+    }
+
+    /** Upper bound on one call through {@link #apply}, retries and hedges included. */
+    public Duration deadline() {
+        return deadline;
+    }
+
+    /** Failures worth another attempt: the request may not have been served, or upstream asked for a retry. */
+    static boolean isTransient(Throwable e) {
+        if (e instanceof TimeoutException || e instanceof WebClientRequestException) return true;
+        if (e instanceof WebClientResponseException r) {
+            int status = r.getStatusCode().value();
+            return status == 429 || status == 502 || status == 503 || status == 504;
+        }
+        return false;
+    }
+
+    /** Recent p95 of successful attempts, or the initial delay until enough samples are in. */
+    Duration hedgeDelay() {
+        long p95 = latencies.p95Nanos();
+        if (p95 < 0) return hedgeInitialDelay;
+        Duration observed = Duration.ofNanos(p95);
+        return observed.compareTo(hedgeMinDelay) < 0 ? hedgeMinDelay : observed;
+    }
+
+    private <T> Mono<T> timed(Mono<T> call) {
+        return Mono.defer(() -> {
+            long start = System.nanoTime();
+            return call.doOnSuccess(v -> latencies.record(System.nanoTime() - start));
+        });
+    }
+
+    /** Fixed-size ring of recent latencies; the p95 is recomputed every few samples, not per read. */
+    static final class LatencyWindow {
+        private static final int MIN_SAMPLES = 20;
+        private static final int RECOMPUTE_EVERY = 16;
+
+        private final long[] samples;
+        private int next;
+        private int count;
+        private volatile long p95Nanos = -1;
+
+        LatencyWindow(int size) {
+            this.samples = new long[size];
+        }
+
+        synchronized void record(long nanos) {
+            samples[next] = nanos;
+            next = (next + 1) % samples.length;
+            if (count < samples.length) count++;
+            if (count >= MIN_SAMPLES && next % RECOMPUTE_EVERY == 0) {
+                long[] sorted = Arrays.copyOf(samples, count);
+                Arrays.sort(sorted);
+                p95Nanos = sorted[(int) Math.ceil(count * 0.95) - 1];
+            }
+        }
+
+        long p95Nanos() {
+            return p95Nanos;
+        }
+    }
+}
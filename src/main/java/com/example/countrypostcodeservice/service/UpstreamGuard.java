@@ -0,0 +1,106 @@
+package com.example.countrypostcodeservice.service;
+
+import com.example.countrypostcodeservice.dto.UpstreamStatus;
+import com.example.countrypostcodeservice.exception.UpstreamUnavailableException;
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerConfig;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.github.resilience4j.micrometer.tagged.TaggedCircuitBreakerMetrics;
+import io.github.resilience4j.reactor.circuitbreaker.operator.CircuitBreakerOperator;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+
+/**
+ * Circuit breaker plus bulkhead around REST Countries. The breaker opens when the failure rate
+ * (timeouts, connection errors, 429 and 5xx; not 404s) or the slow-call rate crosses its
+ * threshold, fails fast while open, and lets a few half-open probes decide whether to close.
+ * The bulkhead caps concurrent calls with a bounded, time-limited wait queue. Rejections surface
+ * as {@link UpstreamUnavailableException}, so callers fall back to stored data where they have it.
+ */
+@Component
+public class UpstreamGuard {
+    private static final Logger log = LoggerFactory.getLogger(UpstreamGuard.class);
+
+    static final String NAME = "restcountries";
+
+    private final CircuitBreaker breaker;
+    private final UpstreamBulkhead bulkhead;
+
+    public UpstreamGuard(@Value("${countries.upstream.breaker.window-size}") int windowSize,
+                         @Value("${countries.upstream.breaker.minimum-calls}") int minimumCalls,
+                         @Value("${countries.upstream.breaker.failure-rate-threshold}") float failureRateThreshold,
+                         @Value("${countries.upstream.breaker.slow-call-rate-threshold}") float slowCallRateThreshold,
+                         @Value("${countries.upstream.breaker.slow-call-duration}") Duration slowCallDuration,
+                         @Value("${countries.upstream.breaker.open-duration}") Duration openDuration,
+                         @Value("${countries.upstream.breaker.half-open-calls}") int halfOpenCalls,
+                         @Value("${countries.upstream.bulkhead.max-concurrent}") int maxConcurrent,
+                         @Value("${countries.upstream.bulkhead.max-queued}") int maxQueued,
+                         @Value("${countries.upstream.bulkhead.max-wait}") Duration maxWait,
+                         MeterRegistry registry) {
+        CircuitBreakerConfig config = CircuitBreakerConfig.custom()
+                .slidingWindowType(CircuitBreakerConfig.SlidingWindowType.COUNT_BASED)
+                .slidingWindowSize(windowSize)
+                .minimumNumberOfCalls(minimumCalls)
+                .failureRateThreshold(failureRateThreshold)
+                .slowCallRateThreshold(slowCallRateThreshold)
+                .slowCallDurationThreshold(slowCallDuration)
+                .waitDurationInOpenState(openDuration)
+                .automaticTransitionFromOpenToHalfOpenEnabled(true)
+                .permittedNumberOfCallsInHalfOpenState(halfOpenCalls)
+                .recordException(UpstreamGuard::isFailure)
+                .build();
+        CircuitBreakerRegistry breakers = CircuitBreakerRegistry.of(config);
+        this.breaker = breakers.circuitBreaker(NAME);
+        this.breaker.getEventPublisher().onStateTransition(
+                e -> log.warn("REST Countries circuit breaker: {}", e.getStateTransition()));
+        TaggedCircuitBreakerMetrics.ofCircuitBreakerRegistry(breakers).bindTo(registry);
+
+        this.bulkhead = new UpstreamBulkhead(maxConcurrent, maxQueued, maxWait);
+        Gauge.builder("countries.upstream.bulkhead.active", bulkhead, UpstreamBulkhead::active)
+                .description("REST Countries calls in progress").register(registry);
+        Gauge.builder("countries.upstream.bulkhead.queued", bulkhead, UpstreamBulkhead::queued)
+                .description("REST Countries calls waiting for a slot").register(registry);
+    }
+
+    /** Applies bulkhead and breaker to a cold upstream call (retries and deadlines included). */
+    public <T> Mono<T> protect(Mono<T> call) {
+        Mono<T> guarded = call.transformDeferred(CircuitBreakerOperator.of(breaker))
+                .onErrorMap(CallNotPermittedException.class, e -> new UpstreamUnavailableException(
+                        "REST Countries circuit breaker is " + breaker.getState(), e));
+        return bulkhead.apply(guarded);
+    }
+
+    /** True while the breaker rejects calls; half-open still lets probes through. */
+    public boolean isOpen() {
+        CircuitBreaker.State state = breaker.getState();
+        return state == CircuitBreaker.State.OPEN || state == CircuitBreaker.State.FORCED_OPEN;
+    }
+
+    public UpstreamStatus status() {
+        CircuitBreaker.Metrics m = breaker.getMetrics();
+        return new UpstreamStatus(
+                breaker.getState().name(),
+                m.getFailureRate(),
+                m.getSlowCallRate(),
+                m.getNumberOfBufferedCalls(),
+                m.getNumberOfNotPermittedCalls(),
+                bulkhead.active(),
+                bulkhead.queued());
+    }
+
+    /** What counts against the breaker: upstream trouble, not answers such as 404 or our own rejections. */
+    static boolean isFailure(Throwable e) {
+        if (e instanceof UpstreamUnavailableException) return false;
+        if (UpstreamCallPolicy.isTransient(e)) return true;
+        return e instanceof WebClientResponseException r && r.getStatusCode().is5xxServerError();
+    }
+}
@@ -0,0 +1,50 @@
+package com.example.countrypostcodeservice.config;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SchedulerConfigTest {
+
+    private final ApplicationContextRunner runner = new ApplicationContextRunner()
+            .withUserConfiguration(SchedulerConfig.class)
+            .withPropertyValues("countries.jpa.threads=2", "countries.jpa.queue-size=10",
+                    "countries.bulk.threads=2", "countries.bulk.queue-size=10");
+
+    private static Thread threadUsedBy(Scheduler scheduler) {
+        return Mono.fromCallable(Thread::currentThread)
+                .subscribeOn(scheduler)
+                .block(Duration.ofSeconds(5));
+    }
+
+    @Test
+    void usesBoundedPlatformThreads_byDefault() {
+        runner.run(ctx -> {
+            Thread t = threadUsedBy(ctx.getBean(Scheduler.class));
+            assertThat(t.isVirtual()).isFalse();
+            assertThat(t.getName()).startsWith("jpa-");
+        });
+    }
+
+    @Test
+    void usesVirtualThreads_whenEnabled() {
+        runner.withPropertyValues("spring.threads.virtual.enabled=true").run(ctx -> {
+            assertThat(ctx.getBeansOfType(Scheduler.class)).containsOnlyKeys("virtualJpaScheduler", "bulkScheduler");
+            assertThat(threadUsedBy(ctx.getBean(Scheduler.class)).isVirtual()).isTrue();
+            assertThat(threadUsedBy(ctx.getBean("bulkScheduler", Scheduler.class)).isVirtual()).isTrue();
+        });
+    }
+
+    @Test
+    void bulkWorkers_getTheirOwnPool_apartFromJpa() {
+        runner.run(ctx -> {
+            assertThat(threadUsedBy(ctx.getBean("bulkScheduler", Scheduler.class)).getName()).startsWith("bulk-");
+            assertThat(ctx.getBean(Scheduler.class)).isSameAs(ctx.getBean("jpaScheduler"));
+        });
+    }
+}
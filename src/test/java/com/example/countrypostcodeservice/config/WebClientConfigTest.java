@@ -0,0 +1,73 @@
+package com.example.countrypostcodeservice.config;
+
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.convert.ApplicationConversionService;
+import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientRequestException;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class WebClientConfigTest {
+
+    private MockWebServer server;
+    private ApplicationContextRunner runner;
+
+    @BeforeEach
+    void setup() throws IOException {
+        server = new MockWebServer();
+        server.start();
+        runner = new ApplicationContextRunner()
+                // Duration properties need Boot's converters, as in a full application
+                .withInitializer(ctx -> ctx.getBeanFactory().setConversionService(new ApplicationConversionService()))
+                .withUserConfiguration(WebClientConfig.class)
+                .withPropertyValues(
+                        "countries.upstream.base-url=" + server.url("/"),
+                        "countries.upstream.pool.max-connections=2",
+                        "countries.upstream.pool.pending-acquire-max-count=10",
+                        "countries.upstream.pool.pending-acquire-timeout=PT1S",
+                        "countries.upstream.pool.max-idle-time=PT30S",
+                        "countries.upstream.pool.max-life-time=PT5M",
+                        "countries.upstream.connect-timeout=PT1S",
+                        "countries.upstream.response-timeout=PT0.2S");
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        server.shutdown();
+    }
+
+    private static String get(WebClient client) {
+        return client.get().uri("/v3.1/alpha/nl").retrieve().bodyToMono(String.class).block(Duration.ofSeconds(5));
+    }
+
+    @Test
+    void usesDedicatedSizedPool() {
+        server.enqueue(new MockResponse().setBody("ok"));
+
+        runner.run(ctx -> {
+            ConnectionProvider pool = ctx.getBean(ConnectionProvider.class);
+            assertThat(pool.name()).isEqualTo("restcountries");
+            assertThat(pool.maxConnections()).isEqualTo(2);
+            assertThat(get(ctx.getBean(WebClient.class))).isEqualTo("ok");
+        });
+    }
+
+    @Test
+    void failsCall_whenUpstreamHangsPastResponseTimeout() {
+        server.enqueue(new MockResponse().setBody("late").setHeadersDelay(2, TimeUnit.SECONDS));
+
+        runner.run(ctx -> assertThatThrownBy(() -> get(ctx.getBean(WebClient.class)))
+                .isInstanceOf(WebClientRequestException.class));
+    }
+}
@@ -1,24 +1,49 @@
 package com.example.countrypostcodeservice.controller;
 
+import com.example.countrypostcodeservice.domain.Country;
+import com.example.countrypostcodeservice.dto.CountryBatchResponse;
 import com.example.countrypostcodeservice.dto.CountryInfoResponse;
+import com.example.countrypostcodeservice.dto.PostcodeNormalizationResponse;
+import com.example.countrypostcodeservice.dto.PostcodeValidationResponse;
+import com.example.countrypostcodeservice.exception.CountryImportException;
+import com.example.countrypostcodeservice.exception.UpstreamUnavailableException;
+import com.example.countrypostcodeservice.service.BulkPostcodeValidationService;
+import com.example.countrypostcodeservice.service.CountryExportService;
 import com.example.countrypostcodeservice.service.CountryQueryService;
+import com.example.countrypostcodeservice.service.CountrySearch;
+import com.example.countrypostcodeservice.service.CountrySnapshots;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
 import jakarta.annotation.Resource;
 import org.hamcrest.Matchers;
 import org.junit.jupiter.api.Test;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.test.context.bean.override.mockito.MockitoBean;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import reactor.core.publisher.Mono;
 
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.List;
 import java.util.Optional;
 
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
 @WebMvcTest(controllers = CountryController.class)
+@Import(CountrySnapshots.class)
 class CountryControllerTest {
 
     @Resource
@@ -27,12 +52,34 @@ class CountryControllerTest {
     @MockitoBean
     CountryQueryService service;
 
+    @MockitoBean
+    BulkPostcodeValidationService bulkValidation;
+
+    @MockitoBean
+    CountrySearch search;
+
+    @MockitoBean
+    CountryExportService export;
+
+    /** GET /countries/{cca2} returns a Mono, so the request completes via an async dispatch */
+    private MvcResult getAsync(String path) throws Exception {
+        return mockMvc.perform(get(path))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+    }
+
+    private MvcResult getAsync(String path, String accept) throws Exception {
+        return mockMvc.perform(get(path).header(HttpHeaders.ACCEPT, accept))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+    }
+
     @Test
     void getCountry_returns200_withExpectedPayload() throws Exception {
-        var dto = new CountryInfoResponse("NL", "Netherlands", "#### @@", "^(\\d{4}[A-Z]{2})$");
-        when(service.findOrFetchByCca2("NL")).thenReturn(Optional.of(dto));
+        var country = new Country("NL", "Netherlands", "#### @@", "^(\\d{4}[A-Z]{2})$");
+        when(service.findCountryAsync("NL")).thenReturn(Mono.just(country));
 
-        mockMvc.perform(get("/countries/NL"))
+        mockMvc.perform(asyncDispatch(getAsync("/countries/NL")))
                 .andExpect(status().isOk())
                 .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_JSON))
                 .andExpect(jsonPath("$.cca2").value("NL"))
@@ -41,17 +88,28 @@ class CountryControllerTest {
                 .andExpect(jsonPath("$.postalRegex").value("^(\\d{4}[A-Z]{2})$"));
     }
 
+    @Test
+    void search_returnsRankedMatches_andIsNotMistakenForACountryCode() throws Exception {
+        when(search.search("neth", 5)).thenReturn(List.of(new Country("NL", "Netherlands", "#### @@", "^(\\d{4}[A-Z]{2})$")));
+
+        mockMvc.perform(get("/countries/search").param("q", "neth").param("limit", "5"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.query").value("neth"))
+                .andExpect(jsonPath("$.countries[0].cca2").value("NL"))
+                .andExpect(jsonPath("$.countries[0].name").value("Netherlands"));
+    }
+
     @Test
     void getCountry_returns404_whenNotFound() throws Exception {
-        when(service.findOrFetchByCca2(anyString())).thenReturn(Optional.empty());
+        when(service.findCountryAsync(anyString())).thenReturn(Mono.empty());
 
-        mockMvc.perform(get("/countries/XX"))
+        mockMvc.perform(asyncDispatch(getAsync("/countries/XX")))
                 .andExpect(status().isNotFound());
     }
 
     @Test
     void addOrRefresh_returns200_withPayload() throws Exception {
-        var dto = new CountryInfoResponse("CO", "Colombia", null, null);
+        var dto = new CountryInfoResponse("CO", "Colombia", null, null, "COL", "170");
         when(service.refreshFromSource("CO")).thenReturn(Optional.of(dto));
 
         mockMvc.perform(post("/countries/CO"))
@@ -71,10 +129,10 @@ class CountryControllerTest {
     }
     @Test
     void get_Colombia_returns_nullPostalFields() throws Exception {
-        var dto = new CountryInfoResponse("CO", "Colombia", null, null);
-        when(service.findOrFetchByCca2("CO")).thenReturn(Optional.of(dto));
+        var country = new Country("CO", "Colombia", null, null);
+        when(service.findCountryAsync("CO")).thenReturn(Mono.just(country));
 
-        mockMvc.perform(get("/countries/CO"))
+        mockMvc.perform(asyncDispatch(getAsync("/countries/CO")))
                 .andExpect(status().isOk())
                 .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_JSON))
                 .andExpect(jsonPath("$.cca2").value("CO"))
@@ -85,7 +143,7 @@ class CountryControllerTest {
 
     @Test
     void post_Colombia_returns_nullPostalFields_and200() throws Exception {
-        var dto = new CountryInfoResponse("CO", "Colombia", null, null);
+        var dto = new CountryInfoResponse("CO", "Colombia", null, null, "COL", "170");
         when(service.refreshFromSource("CO")).thenReturn(Optional.of(dto));
 
         mockMvc.perform(post("/countries/CO"))
@@ -98,10 +156,10 @@ class CountryControllerTest {
 
     @Test
     void get_China_returns_sixDigitRegex() throws Exception {
-        var dto = new CountryInfoResponse("CN", "China", "######", "^(\\d{6})$");
-        when(service.findOrFetchByCca2("CN")).thenReturn(Optional.of(dto));
+        var country = new Country("CN", "China", "######", "^(\\d{6})$");
+        when(service.findCountryAsync("CN")).thenReturn(Mono.just(country));
 
-        mockMvc.perform(get("/countries/CN"))
+        mockMvc.perform(asyncDispatch(getAsync("/countries/CN")))
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$.cca2").value("CN"))
                 .andExpect(jsonPath("$.name").value("China"))
@@ -112,12 +170,276 @@ class CountryControllerTest {
 
     @Test
     void post_China_returns_sixDigitRegex_and200() throws Exception {
-        var dto = new CountryInfoResponse("CN", "China", "######", "^(\\d{6})$");
+        var dto = new CountryInfoResponse("CN", "China", "######", "^(\\d{6})$", "CHN", "156");
         when(service.refreshFromSource("CN")).thenReturn(Optional.of(dto));
 
         mockMvc.perform(post("/countries/CN"))
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$.cca2").value("CN"))
+                .andExpect(jsonPath("$.cca3").value("CHN"))
+                .andExpect(jsonPath("$.ccn3").value("156"))
                 .andExpect(jsonPath("$.postalRegex").value("^(\\d{6})$"));
     }
+
+    @Test
+    void validatePostcode_returns200_withResultAndFormat() throws Exception {
+        var result = new PostcodeValidationResponse("NL", "1234AB", true, "#### @@");
+        when(service.validatePostcode("NL", "1234AB")).thenReturn(Optional.of(result));
+
+        mockMvc.perform(get("/countries/NL/postcodes/1234AB/validate"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_JSON))
+                .andExpect(jsonPath("$.cca2").value("NL"))
+                .andExpect(jsonPath("$.postcode").value("1234AB"))
+                .andExpect(jsonPath("$.valid").value(true))
+                .andExpect(jsonPath("$.postalFormat").value("#### @@"));
+    }
+
+    @Test
+    void validatePostcode_returns404_whenCountryUnknown() throws Exception {
+        when(service.validatePostcode(anyString(), anyString())).thenReturn(Optional.empty());
+
+        mockMvc.perform(get("/countries/XX/postcodes/1234/validate"))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void normalizePostcode_returns200_withNormalizedPostcode() throws Exception {
+        var result = new PostcodeNormalizationResponse("NL", "1234-ab", "1234 AB", true, "#### @@");
+        when(service.normalizePostcode("NL", "1234-ab")).thenReturn(Optional.of(result));
+
+        mockMvc.perform(get("/countries/NL/postcodes/1234-ab/normalize"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.postcode").value("1234-ab"))
+                .andExpect(jsonPath("$.normalized").value("1234 AB"))
+                .andExpect(jsonPath("$.valid").value(true));
+    }
+
+    @Test
+    void normalizePostcode_returns404_whenCountryUnknown() throws Exception {
+        when(service.normalizePostcode(anyString(), anyString())).thenReturn(Optional.empty());
+
+        mockMvc.perform(get("/countries/XX/postcodes/1234/normalize"))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void validatePostcodes_streamsNdjsonResults() throws Exception {
+        when(bulkValidation.validate(any(), any(), eq(BulkPostcodeValidationService.Format.NDJSON)))
+                .thenAnswer(inv -> {
+                    OutputStream out = inv.getArgument(1);
+                    out.write("{\"cca2\":\"NL\",\"postcode\":\"1234AB\",\"valid\":true,\"postalFormat\":\"#### @@\"}\n"
+                            .getBytes(StandardCharsets.UTF_8));
+                    return 1L;
+                });
+
+        MvcResult result = mockMvc.perform(post("/countries/postcodes/validate")
+                        .contentType(MediaType.APPLICATION_NDJSON)
+                        .content("{\"cca2\":\"NL\",\"postcode\":\"1234AB\"}\n"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON))
+                .andExpect(content().string(Matchers.containsString("\"valid\":true")));
+    }
+
+    @Test
+    void getCountry_returns502_whenUpstreamFails() throws Exception {
+        when(service.findCountryAsync("DE"))
+                .thenReturn(Mono.error(new CountryImportException("REST Countries returned 503", null)));
+
+        mockMvc.perform(asyncDispatch(getAsync("/countries/DE")))
+                .andExpect(status().isBadGateway())
+                .andExpect(jsonPath("$.error").value("Upstream error"));
+    }
+
+    @Test
+    void getCountry_returns503_whenCircuitBreakerIsOpen() throws Exception {
+        when(service.findCountryAsync("DE"))
+                .thenReturn(Mono.error(new UpstreamUnavailableException("REST Countries circuit breaker is OPEN", null)));
+
+        mockMvc.perform(asyncDispatch(getAsync("/countries/DE")))
+                .andExpect(status().isServiceUnavailable())
+                .andExpect(jsonPath("$.error").value("Upstream unavailable"));
+    }
+
+    @Test
+    void validatePostcodes_usesCsv_forTextCsvBody() throws Exception {
+        when(bulkValidation.validate(any(), any(), eq(BulkPostcodeValidationService.Format.CSV)))
+                .thenAnswer(inv -> {
+                    OutputStream out = inv.getArgument(1);
+                    out.write("NL,1234AB,true\n".getBytes(StandardCharsets.UTF_8));
+                    return 1L;
+                });
+
+        MvcResult result = mockMvc.perform(post("/countries/postcodes/validate")
+                        .contentType("text/csv")
+                        .content("NL,1234AB\n"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith("text/csv"))
+                .andExpect(content().string("NL,1234AB,true\n"));
+    }
+
+    @Test
+    void getCountries_returnsBatch_inRequestOrder_withNotFound() throws Exception {
+        var batch = new CountryBatchResponse(
+                List.of(new CountryInfoResponse("NL", "Netherlands", "#### @@", "^(\\d{4}[A-Z]{2})$", "NLD", "528"),
+                        new CountryInfoResponse("DE", "Germany", "#####", "^(\\d{5})$", "DEU", "276")),
+                List.of("XX"));
+        when(service.findOrFetchAll(List.of("NL", "DE", "XX"))).thenReturn(batch);
+
+        mockMvc.perform(get("/countries").param("codes", "NL,DE,XX"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.countries[0].cca2").value("NL"))
+                .andExpect(jsonPath("$.countries[1].cca2").value("DE"))
+                .andExpect(jsonPath("$.notFound[0]").value("XX"));
+    }
+
+    @Test
+    void getCountry_setsStrongEtag_andCacheControl() throws Exception {
+        var country = new Country("NL", "Netherlands", "#### @@", "^(\\d{4}[A-Z]{2})$");
+        when(service.findCountryAsync("NL")).thenReturn(Mono.just(country));
+
+        mockMvc.perform(asyncDispatch(getAsync("/countries/NL")))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"" + country.contentHash() + "\""))
+                .andExpect(header().string(HttpHeaders.CACHE_CONTROL, Matchers.containsString("max-age=")));
+    }
+
+    @Test
+    void getCountry_returns304_withoutBody_whenIfNoneMatchMatches() throws Exception {
+        var country = new Country("NL", "Netherlands", "#### @@", "^(\\d{4}[A-Z]{2})$");
+        when(service.findCountryAsync("NL")).thenReturn(Mono.just(country));
+        String etag = "\"" + country.contentHash() + "\"";
+
+        MvcResult result = mockMvc.perform(get("/countries/NL").header(HttpHeaders.IF_NONE_MATCH, "\"other\", W/" + etag))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string(HttpHeaders.ETAG, etag))
+                .andExpect(content().string(""));
+    }
+
+    @Test
+    void getCountry_etagIgnoresFetchTime_butTracksContent() throws Exception {
+        var before = new Country("CN", "China", "######", "^(\\d{6})$", Instant.parse("2024-01-01T00:00:00Z"));
+        var sameContent = new Country("CN", "China", "######", "^(\\d{6})$");
+        var changed = new Country("CN", "China", "#####", "^(\\d{5})$");
+
+        assertThat(sameContent.contentHash()).isEqualTo(before.contentHash());
+        assertThat(changed.contentHash()).isNotEqualTo(before.contentHash());
+
+        when(service.findCountryAsync("CN")).thenReturn(Mono.just(changed));
+        MvcResult result = mockMvc.perform(get("/countries/CN")
+                        .header(HttpHeaders.IF_NONE_MATCH, "\"" + before.contentHash() + "\""))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.postalFormat").value("#####"));
+    }
+
+    @Test
+    void getCountry_servesCborOrSmile_whenAcceptPrefersThem_withTheirOwnEtag() throws Exception {
+        var country = new Country("NL", "NLD", "528", "Netherlands", "#### @@", "^(\\d{4}[A-Z]{2})$", null);
+        when(service.findCountryAsync("NL")).thenReturn(Mono.just(country));
+
+        MvcResult cbor = mockMvc.perform(asyncDispatch(getAsync("/countries/NL", "application/cbor")))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("application/cbor"))
+                .andExpect(header().string(HttpHeaders.ETAG, "\"" + country.contentHash() + "-cbor\""))
+                .andExpect(header().string(HttpHeaders.VARY, Matchers.containsString(HttpHeaders.ACCEPT)))
+                .andReturn();
+        CountryInfoResponse decoded = new CBORMapper().readValue(cbor.getResponse().getContentAsByteArray(), CountryInfoResponse.class);
+        assertThat(decoded).isEqualTo(CountryInfoResponse.from(country));
+
+        mockMvc.perform(asyncDispatch(getAsync("/countries/NL", "application/json;q=0.5, application/x-jackson-smile")))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("application/x-jackson-smile"));
+
+        mockMvc.perform(asyncDispatch(getAsync("/countries/NL", "*/*")))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_JSON))
+                .andExpect(jsonPath("$.cca3").value("NLD"));
+    }
+
+    @Test
+    void getCountries_honorsAccept_forBinaryFormats() throws Exception {
+        var batch = new CountryBatchResponse(
+                List.of(new CountryInfoResponse("NL", "Netherlands", "#### @@", "^(\\d{4}[A-Z]{2})$", "NLD", "528")),
+                List.of());
+        when(service.findOrFetchAll(List.of("NL"))).thenReturn(batch);
+
+        MvcResult result = mockMvc.perform(get("/countries").param("codes", "NL").accept("application/cbor"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("application/cbor"))
+                .andReturn();
+        assertThat(new CBORMapper().readValue(result.getResponse().getContentAsByteArray(), CountryBatchResponse.class))
+                .isEqualTo(batch);
+    }
+
+    @Test
+    void getCountry_writesSnapshotBytes_withContentLength() throws Exception {
+        var country = new Country("NL", "Netherlands", "#### @@", "^(\\d{4}[A-Z]{2})$");
+        when(service.findCountryAsync("NL")).thenReturn(Mono.just(country));
+
+        MvcResult result = mockMvc.perform(asyncDispatch(getAsync("/countries/NL")))
+                .andExpect(status().isOk())
+                .andReturn();
+
+        byte[] body = result.getResponse().getContentAsByteArray();
+        assertThat(result.getResponse().getContentLength()).isEqualTo(body.length);
+        assertThat(new String(body, StandardCharsets.UTF_8))
+                .isEqualTo("{\"cca2\":\"NL\",\"name\":\"Netherlands\",\"postalFormat\":\"#### @@\",\"postalRegex\":\"^(\\\\d{4}[A-Z]{2})$\",\"cca3\":null,\"ccn3\":null}");
+    }
+
+    @Test
+    void export_streamsNdjson_withLastModified_andGzipsWhenAccepted() throws Exception {
+        when(export.lastModified()).thenReturn(Optional.of(Instant.parse("2024-05-01T10:15:30Z")));
+        when(export.export(any(), eq(CountryExportService.Format.NDJSON), eq(true)))
+                .thenAnswer(inv -> {
+                    OutputStream out = inv.getArgument(0);
+                    out.write("{\"cca2\":\"NL\"}\n".getBytes(StandardCharsets.UTF_8));
+                    return 1L;
+                });
+
+        MvcResult result = mockMvc.perform(get("/countries/export").header(HttpHeaders.ACCEPT_ENCODING, "gzip, br"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON))
+                .andExpect(header().string(HttpHeaders.CONTENT_ENCODING, "gzip"))
+                .andExpect(header().string(HttpHeaders.LAST_MODIFIED, "Wed, 01 May 2024 10:15:30 GMT"));
+    }
+
+    @Test
+    void export_usesCsv_whenAccepted_andAnswers304_whenNotModified() throws Exception {
+        when(export.lastModified()).thenReturn(Optional.of(Instant.parse("2024-05-01T10:15:30Z")));
+
+        mockMvc.perform(get("/countries/export").header(HttpHeaders.IF_MODIFIED_SINCE, "Wed, 01 May 2024 10:15:30 GMT"))
+                .andExpect(status().isNotModified())
+                .andExpect(content().string(""));
+
+        MvcResult result = mockMvc.perform(get("/countries/export")
+                        .accept(MediaType.parseMediaType("text/csv"))
+                        .header(HttpHeaders.IF_MODIFIED_SINCE, "Wed, 01 May 2024 10:15:29 GMT"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith("text/csv"))
+                .andExpect(header().doesNotExist(HttpHeaders.CONTENT_ENCODING));
+        verify(export).export(any(), eq(CountryExportService.Format.CSV), eq(false));
+    }
 }
@@ -0,0 +1,44 @@
+package com.example.countrypostcodeservice.controller;
+
+import com.example.countrypostcodeservice.service.PostcodeCountryLookup;
+import jakarta.annotation.Resource;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.List;
+
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@WebMvcTest(controllers = PostcodeController.class)
+class PostcodeControllerTest {
+
+    @Resource
+    MockMvc mockMvc;
+
+    @MockitoBean
+    PostcodeCountryLookup lookup;
+
+    @Test
+    void countriesFor_returnsEveryCandidateCode() throws Exception {
+        when(lookup.countriesFor("12345")).thenReturn(List.of("DE", "FR", "US"));
+
+        mockMvc.perform(get("/postcodes/12345/countries"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.postcode").value("12345"))
+                .andExpect(jsonPath("$.countries[0]").value("DE"))
+                .andExpect(jsonPath("$.countries.length()").value(3));
+    }
+
+    @Test
+    void countriesFor_returnsAnEmptyList_whenNothingMatches() throws Exception {
+        when(lookup.countriesFor("XYZ")).thenReturn(List.of());
+
+        mockMvc.perform(get("/postcodes/XYZ/countries"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.countries").isEmpty());
+    }
+}
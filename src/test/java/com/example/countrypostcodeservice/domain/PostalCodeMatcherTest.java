@@ -0,0 +1,162 @@
+package com.example.countrypostcodeservice.domain;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PostalCodeMatcherTest {
+
+    /** Characters the generated inputs are drawn from: shape characters plus a few that must be rejected. */
+    private static final String ALPHABET = "0123456789ABCDEFGHIJKLMNOPQRSTUVWXYZabcz -\t\n.É";
+
+    @Test
+    void everySampleRegex_compilesToADfa_thatAgreesWithPattern() throws IOException {
+        JsonNode sample;
+        try (InputStream in = getClass().getResourceAsStream("/restcountries-sample.json")) {
+            sample = new ObjectMapper().readTree(in);
+        }
+        int checked = 0;
+        for (JsonNode country : sample) {
+            JsonNode postalCode = country.path("postalCode");
+            if (postalCode.isMissingNode()) continue;
+            String regex = postalCode.path("regex").asText();
+            String format = postalCode.path("format").asText();
+
+            PostalCodeMatcher matcher = PostalCodeMatcher.forRegex(regex);
+            assertThat(matcher.isCompiled()).as(regex).isTrue();
+            checked += assertAgreesWithPattern(regex, matcher, inputsFor(format, country.path("cca2").asText()));
+        }
+        assertThat(checked).isGreaterThan(100_000);
+    }
+
+    @Test
+    void trickierRegexes_inTheSubset_agreeWithPattern() {
+        List<String> regexes = List.of(
+                "", "^$", "a^b", "(^A|B)C", "(?:AB)*\\d+", "\\d{2,}", "\\d{0,3}-?\\d{1,2}",
+                "[A-C-]\\d", "[\\-.\\d]+", "\\w\\s?\\w", "(?<area>[A-Z]{1,2})\\d\\d??", "A|B|",
+                "^\\d{5}$|^[A-Z]{2}\\d{3}$", "(\\d$)", "[a-cx-z]{2}\\.\\d");
+        for (String regex : regexes) {
+            PostalCodeMatcher matcher = PostalCodeMatcher.forRegex(regex);
+            assertThat(matcher.isCompiled()).as(regex).isTrue();
+            assertAgreesWithPattern(regex, matcher, randomInputs(new Random(regex.hashCode()), 5_000));
+        }
+    }
+
+    @Test
+    void constructsOutsideTheSubset_fallBackToPattern() {
+        List<String> regexes = List.of(
+                "(?i)^[a-z]{2}\\d$", "^[^0-9]+$", "^.\\d$", "^(\\d)\\1$", "^\\d{3}$\\s", "^\\d++$",
+                "^(?=1)\\d{4}$", "^\\p{Lu}\\d$", "^\\bAB$", "^É\\d$");
+        for (String regex : regexes) {
+            PostalCodeMatcher matcher = PostalCodeMatcher.forRegex(regex);
+            assertThat(matcher.isCompiled()).as(regex).isFalse();
+            assertAgreesWithPattern(regex, matcher, randomInputs(new Random(regex.hashCode()), 2_000));
+        }
+    }
+
+    @Test
+    void missingOrInvalidRegex_neverMatches() {
+        assertThat(PostalCodeMatcher.forRegex(null)).isSameAs(PostalCodeMatcher.NEVER);
+        assertThat(PostalCodeMatcher.forRegex("^(\\d{4}$")).isSameAs(PostalCodeMatcher.NEVER);
+        assertThat(PostalCodeMatcher.forRegex("[z-a]")).isSameAs(PostalCodeMatcher.NEVER);
+    }
+
+    @Test
+    void dollar_doesNotAcceptATrailingLineTerminator_underFullMatch() {
+        PostalCodeMatcher matcher = PostalCodeMatcher.forRegex("^\\d{5}$");
+
+        assertThat(matcher.matches("12345")).isTrue();
+        assertThat(matcher.matches("12345\n")).isFalse();
+    }
+
+    @Test
+    void format_digitsLettersLiteralsAndAlternatives() {
+        PostalCodeMatcher nl = PostalCodeMatcher.forFormat("#### @@");
+        PostalCodeMatcher gb = PostalCodeMatcher.forFormat("@# #@@|@@## #@@|GIR0AA");
+
+        assertThat(nl.isCompiled()).isTrue();
+        assertThat(nl.matches("1234 AB")).isTrue();
+        assertThat(nl.matches("1234AB")).isFalse();
+        assertThat(nl.matches("1234 ab")).isFalse();
+        assertThat(gb.matches("M1 1AE")).isTrue();
+        assertThat(gb.matches("SW19 2AB")).isTrue();
+        assertThat(gb.matches("GIR0AA")).isTrue();
+        assertThat(gb.matches("SW1 2AB")).isFalse();
+        assertThat(PostalCodeMatcher.forFormat("(###).##").matches("(123).45")).isTrue();
+        assertThat(PostalCodeMatcher.forFormat("  ")).isSameAs(PostalCodeMatcher.NEVER);
+    }
+
+    private static int assertAgreesWithPattern(String regex, PostalCodeMatcher matcher, Iterable<String> inputs) {
+        Pattern pattern = Pattern.compile(regex);
+        int n = 0;
+        for (String input : inputs) {
+            assertThat(matcher.matches(input))
+                    .as("%s against \"%s\"", regex, input)
+                    .isEqualTo(pattern.matcher(input).matches());
+            n++;
+        }
+        return n;
+    }
+
+    /**
+     * Codes built from the format (first letters / digits, upper and lower case, with and
+     * without separators, with the country prefix), every single-character edit of those, and
+     * random strings.
+     */
+    private static Set<String> inputsFor(String format, String cca2) {
+        Set<String> seeds = new LinkedHashSet<>();
+        for (String shape : format.split("\\|")) {
+            StringBuilder digitsLow = new StringBuilder(), digitsHigh = new StringBuilder();
+            for (int i = 0; i < shape.length(); i++) {
+                char c = shape.charAt(i);
+                digitsLow.append(c == '#' ? '0' : c == '@' ? 'A' : c);
+                digitsHigh.append(c == '#' ? (char) ('1' + i % 9) : c == '@' ? (char) ('Z' - i % 26) : c);
+            }
+            for (String code : List.of(digitsLow.toString(), digitsHigh.toString())) {
+                String compact = code.replaceAll("[\\s-]", "");
+                seeds.addAll(List.of(code, compact, code.toLowerCase(), compact.toLowerCase(),
+                        cca2 + compact, cca2 + cca2 + compact, cca2 + "-" + compact));
+            }
+        }
+        Set<String> inputs = new LinkedHashSet<>(seeds);
+        for (String seed : seeds) {
+            for (int i = 0; i <= seed.length(); i++) {
+                if (i < seed.length()) inputs.add(seed.substring(0, i) + seed.substring(i + 1));
+                for (int k = 0; k < ALPHABET.length(); k++) {
+                    char c = ALPHABET.charAt(k);
+                    inputs.add(seed.substring(0, i) + c + seed.substring(i));
+                    if (i < seed.length()) inputs.add(seed.substring(0, i) + c + seed.substring(i + 1));
+                }
+            }
+        }
+        inputs.addAll(randomInputs(new Random(format.hashCode()), 500));
+        return inputs;
+    }
+
+    /** Random strings of up to eight pieces, each a character from the alphabet or a short run. */
+    private static List<String> randomInputs(Random random, int count) {
+        List<String> pieces = new ArrayList<>(List.of("AB", "12", "345", "A1", "SE"));
+        ALPHABET.chars().forEach(c -> pieces.add(String.valueOf((char) c)));
+        List<String> inputs = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            int length = random.nextInt(9);
+            StringBuilder sb = new StringBuilder();
+            for (int k = 0; k < length; k++) {
+                sb.append(pieces.get(random.nextInt(pieces.size())));
+            }
+            inputs.add(sb.toString());
+        }
+        return inputs;
+    }
+}
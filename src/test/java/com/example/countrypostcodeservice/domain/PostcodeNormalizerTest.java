@@ -0,0 +1,53 @@
+package com.example.countrypostcodeservice.domain;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PostcodeNormalizerTest {
+
+    @Test
+    void stripsNoise_fixesCase_andInsertsSeparators() {
+        PostcodeNormalizer nl = PostcodeNormalizer.forFormat("#### @@");
+
+        assertThat(nl.normalize("1234ab")).isEqualTo("1234 AB");
+        assertThat(nl.normalize(" 1234 AB ")).isEqualTo("1234 AB");
+        assertThat(nl.normalize("1234-AB")).isEqualTo("1234 AB");
+        assertThat(PostcodeNormalizer.forFormat("#####-####").normalize("123456789")).isEqualTo("12345-6789");
+        assertThat(PostcodeNormalizer.forFormat("###-####").normalize("123 4567")).isEqualTo("123-4567");
+    }
+
+    @Test
+    void fixedLiterals_mayBeTypedOrLeftOut() {
+        PostcodeNormalizer se = PostcodeNormalizer.forFormat("SE-### ##");
+        PostcodeNormalizer kr = PostcodeNormalizer.forFormat("SEOUL ###-###");
+
+        assertThat(se.normalize("12345")).isEqualTo("SE-123 45");
+        assertThat(se.normalize("se 123 45")).isEqualTo("SE-123 45");
+        assertThat(se.format("SX12345")).isNull();
+        assertThat(kr.normalize("123456")).isEqualTo("SEOUL 123-456");
+    }
+
+    @Test
+    void picksTheFirstAlternative_theInputFits() {
+        PostcodeNormalizer gb = PostcodeNormalizer.forFormat(
+                "@# #@@|@## #@@|@@# #@@|@@## #@@|@#@ #@@|@@#@ #@@|GIR0AA");
+
+        assertThat(gb.normalize("m11ae")).isEqualTo("M1 1AE");
+        assertThat(gb.normalize("SW192AB")).isEqualTo("SW19 2AB");
+        assertThat(gb.normalize("w1a1aa")).isEqualTo("W1A 1AA");
+        assertThat(gb.normalize("ec1a 1bb")).isEqualTo("EC1A 1BB");
+        assertThat(gb.normalize("gir 0aa")).isEqualTo("GIR0AA");
+        assertThat(gb.format("")).isNull();
+    }
+
+    @Test
+    void fallsBackToTheCompactForm_whenNothingFits() {
+        PostcodeNormalizer nl = PostcodeNormalizer.forFormat("#### @@");
+
+        assertThat(nl.format("12345")).isNull();
+        assertThat(nl.normalize("12-345")).isEqualTo("12345");
+        assertThat(PostcodeNormalizer.forFormat(null)).isSameAs(PostcodeNormalizer.COMPACT_ONLY);
+        assertThat(PostcodeNormalizer.COMPACT_ONLY.normalize("ab 12.3")).isEqualTo("AB123");
+    }
+}
@@ -0,0 +1,216 @@
+package com.example.countrypostcodeservice.service;
+
+import com.example.countrypostcodeservice.domain.Country;
+import com.example.countrypostcodeservice.exception.CountryImportException;
+import com.example.countrypostcodeservice.exception.UpstreamUnavailableException;
+import com.example.countrypostcodeservice.repository.CountryRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.scheduler.Schedulers;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+class BulkPostcodeValidationServiceTest {
+
+    private CountryRepository repo;
+    private CountryImportService importer;
+    private BulkPostcodeValidationService service;
+
+    @BeforeEach
+    void setup() {
+        repo = mock(CountryRepository.class);
+        importer = mock(CountryImportService.class);
+        var cache = new CountryCache(100, Duration.ofMinutes(1));
+        cache.put(new Country("NL", "Netherlands", "#### @@", "^(\\d{4}[A-Z]{2})$"));
+        cache.put(new Country("CN", "China", "######", "^(\\d{6})$"));
+        when(repo.findById(anyString())).thenReturn(Optional.empty());
+        when(importer.fetchAndSave(anyString())).thenReturn(Optional.empty());
+
+        var queries = new CountryQueryService(repo, importer, cache,
+                new CountryFreshness(Duration.ofDays(1), Duration.ofDays(30), Duration.ofMinutes(1)),
+                new CountryMetrics(new SimpleMeterRegistry()), Schedulers.boundedElastic());
+        service = new BulkPostcodeValidationService(queries, new ObjectMapper(), Schedulers.boundedElastic(), 2, 2);
+    }
+
+    private String run(String input, BulkPostcodeValidationService.Format format) throws Exception {
+        var out = new ByteArrayOutputStream();
+        service.validate(new ByteArrayInputStream(input.getBytes(StandardCharsets.UTF_8)), out, format);
+        return out.toString(StandardCharsets.UTF_8);
+    }
+
+    @Test
+    void ndjson_writesOneResultPerLine_inInputOrder() throws Exception {
+        String input = """
+                {"cca2":"NL","postcode":"1234AB"}
+                {"cca2":"nl","postcode":"1234 AB"}
+
+                {"cca2":"CN","postcode":"100000"}
+                {"cca2":"XX","postcode":"1"}
+                not json
+                """;
+
+        String[] lines = run(input, BulkPostcodeValidationService.Format.NDJSON).split("\n");
+
+        assertThat(lines).hasSize(6);
+        assertThat(lines[0]).contains("\"cca2\":\"NL\"", "\"valid\":true", "\"postalFormat\":\"#### @@\"");
+        assertThat(lines[1]).contains("\"postcode\":\"1234 AB\"", "\"valid\":false");
+        assertThat(lines[2]).contains("\"postcode\":\"\"", "\"valid\":false");   // blank input line
+        assertThat(lines[3]).contains("\"cca2\":\"CN\"", "\"valid\":true");
+        assertThat(lines[4]).contains("\"cca2\":\"XX\"", "\"valid\":false");
+        assertThat(lines[5]).contains("\"postcode\":\"not json\"", "\"valid\":false");
+    }
+
+    @Test
+    void csv_skipsHeader_andWritesCca2PostcodeValid() throws Exception {
+        String input = """
+                cca2,postcode
+                NL,1234AB
+                CN, 12345
+                """;
+
+        String output = run(input, BulkPostcodeValidationService.Format.CSV);
+
+        assertThat(output).isEqualTo("""
+                cca2,postcode,valid,error
+                NL,1234AB,true,
+                CN,12345,false,
+                """);
+        verifyNoInteractions(importer);
+    }
+
+    @Test
+    void csv_quotesPostcodesThatNeedIt_andAnswersBlankLines() throws Exception {
+        String input = "NL,\"12,34\"\n\nNL,\"1234 \"\"AB\"\"\"\n";
+        when(importer.fetchAndSave(anyString())).thenReturn(Optional.empty());
+
+        String output = run(input, BulkPostcodeValidationService.Format.CSV);
+
+        assertThat(output).isEqualTo("NL,\"12,34\",false,\n,,false,\nNL,\"1234 \"\"AB\"\"\",false,\n");
+    }
+
+    @Test
+    void failedLookup_yieldsAnErrorLine_andTheRestOfTheFileIsStillValidated() throws Exception {
+        when(importer.fetchAndSave("XX")).thenThrow(new UpstreamUnavailableException("circuit open", null));
+        when(importer.fetchAndSave("YY")).thenThrow(new CountryImportException("REST Countries returned 503", null));
+        String input = """
+                {"cca2":"XX","postcode":"1"}
+                {"cca2":"NL","postcode":"1234AB"}
+                {"cca2":"YY","postcode":"2"}
+                {"cca2":"CN","postcode":"100000"}
+                """;
+
+        String[] lines = run(input, BulkPostcodeValidationService.Format.NDJSON).split("\n");
+
+        assertThat(lines).hasSize(4);
+        assertThat(lines[0]).contains("\"cca2\":\"XX\"", "\"valid\":false", "\"error\":\"country lookup failed\"");
+        assertThat(lines[1]).contains("\"valid\":true").doesNotContain("error");
+        assertThat(lines[2]).contains("\"cca2\":\"YY\"", "\"error\"");
+        assertThat(lines[3]).contains("\"cca2\":\"CN\"", "\"valid\":true");
+
+        String csv = run("XX,1\nNL,1234AB\nYY,2\n", BulkPostcodeValidationService.Format.CSV);
+
+        assertThat(csv).isEqualTo("XX,1,false,country lookup failed\nNL,1234AB,true,\nYY,2,false,country lookup failed\n");
+    }
+
+    @Test
+    void lookups_runOnTheGivenScheduler_notTheCommonPool() throws Exception {
+        Set<String> threads = ConcurrentHashMap.newKeySet();
+        when(importer.fetchAndSave(anyString())).thenAnswer(inv -> {
+            threads.add(Thread.currentThread().getName());
+            return Optional.empty();
+        });
+        var scheduler = Schedulers.newBoundedElastic(2, 100, "bulk-test");
+        try {
+            var queries = new CountryQueryService(repo, importer, new CountryCache(100, Duration.ofMinutes(1)),
+                    new CountryFreshness(Duration.ofDays(1), Duration.ofDays(30), Duration.ofMinutes(1)),
+                    new CountryMetrics(new SimpleMeterRegistry()), scheduler);
+            var bulk = new BulkPostcodeValidationService(queries, new ObjectMapper(), scheduler, 4, 2);
+            var out = new ByteArrayOutputStream();
+
+            bulk.validate(new ByteArrayInputStream("AA,1\nBB,2\nCC,3\nDD,4\nEE,5\n".getBytes(StandardCharsets.UTF_8)),
+                    out, BulkPostcodeValidationService.Format.CSV);
+
+            assertThat(out.toString(StandardCharsets.UTF_8).split("\n")).hasSize(5);
+            assertThat(threads).isNotEmpty().allMatch(name -> name.startsWith("bulk-test"));
+        } finally {
+            scheduler.dispose();
+        }
+    }
+
+    @Test
+    void coldCodes_complete_withMoreWorkersThanJpaThreads() throws Exception {
+        var server = new MockWebServer();
+        server.setDispatcher(new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) {
+                String code = request.getRequestUrl().pathSegments().get(2).toUpperCase();
+                return new MockResponse().setResponseCode(200)
+                        .setHeader("Content-Type", "application/json")
+                        .setBody("{\"cca2\":\"" + code + "\",\"name\":{\"common\":\"Country " + code + "\"}}")
+                        .setHeadersDelay(50, TimeUnit.MILLISECONDS);
+            }
+        });
+        server.start();
+        var jpa = Schedulers.newBoundedElastic(2, 1000, "test-jpa");
+        var workers = Schedulers.newBoundedElastic(8, 1000, "test-bulk");
+        var pool = Executors.newFixedThreadPool(2);
+        try {
+            when(repo.save(any(Country.class))).thenAnswer(inv -> inv.getArgument(0));
+            var registry = new SimpleMeterRegistry();
+            var cache = new CountryCache(100, Duration.ofMinutes(1));
+            var importer = new CountryImportService(WebClient.create(server.url("/").toString()), repo, cache,
+                    new CountryMetrics(registry), CountryImportServiceTest.noRetries(),
+                    CountryImportServiceTest.lenientGuard(registry), jpa, Duration.ofSeconds(5));
+            var queries = new CountryQueryService(repo, importer, cache,
+                    new CountryFreshness(Duration.ofDays(1), Duration.ofDays(30), Duration.ofMinutes(1)),
+                    new CountryMetrics(registry), jpa);
+            var bulk = new BulkPostcodeValidationService(queries, new ObjectMapper(), workers, 16, 4);
+            var input = new StringBuilder();
+            for (int i = 0; i < 16; i++) input.append((char) ('A' + i)).append("Q,1\n");
+
+            // two jobs at once: 8 workers blocked on imports, against 2 JPA threads for the saves
+            List<Future<String>> jobs = new ArrayList<>();
+            for (int j = 0; j < 2; j++) {
+                jobs.add(pool.submit(() -> {
+                    var out = new ByteArrayOutputStream();
+                    bulk.validate(new ByteArrayInputStream(input.toString().getBytes(StandardCharsets.UTF_8)),
+                            out, BulkPostcodeValidationService.Format.CSV);
+                    return out.toString(StandardCharsets.UTF_8);
+                }));
+            }
+
+            for (Future<String> job : jobs) {
+                assertThat(job.get(10, TimeUnit.SECONDS).split("\n")).hasSize(16).allMatch(l -> l.endsWith(",false,"));
+            }
+            assertThat(server.getRequestCount()).isEqualTo(16);
+        } finally {
+            pool.shutdownNow();
+            workers.dispose();
+            jpa.dispose();
+            server.shutdown();
+        }
+    }
+}
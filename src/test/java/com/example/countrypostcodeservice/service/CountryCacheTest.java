@@ -0,0 +1,37 @@
+package com.example.countrypostcodeservice.service;
+
+import com.example.countrypostcodeservice.domain.Country;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CountryCacheTest {
+
+    private final CountryCache cache = new CountryCache(100, Duration.ofMinutes(1));
+    private final Country nl = new Country("NL", "NLD", "528", "Netherlands", "#### @@", "^(\\d{4}[A-Z]{2})$", Instant.now());
+
+    @Test
+    void putMissing_forAnAlias_keepsTheCountryCachedUnderItsOtherCodes() {
+        cache.put(nl);
+
+        cache.putMissing("nld");
+
+        assertThat(cache.get("NL")).isSameAs(nl);
+        assertThat(cache.get("528")).isSameAs(nl);
+        assertThat(cache.isKnownMissing("NLD")).isTrue();
+    }
+
+    @Test
+    void putMissing_forTheCca2_evictsTheCountry() {
+        cache.put(nl);
+
+        cache.putMissing("nl");
+
+        assertThat(cache.get("NL")).isNull();
+        assertThat(cache.get("NLD")).isNull();
+        assertThat(cache.isKnownMissing("NL")).isTrue();
+    }
+}
@@ -0,0 +1,81 @@
+package com.example.countrypostcodeservice.service;
+
+import com.example.countrypostcodeservice.domain.Country;
+import com.example.countrypostcodeservice.repository.CountryRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class CountryExportServiceTest {
+
+    private final CountryRepository repo = mock(CountryRepository.class);
+    private final EntityManager em = mock(EntityManager.class);
+    private final CountryExportService service = new CountryExportService(repo, em,
+            new TransactionTemplate(mock(PlatformTransactionManager.class)), new ObjectMapper());
+    private final AtomicBoolean closed = new AtomicBoolean();
+
+    private void stored(Country... countries) {
+        when(repo.streamAll()).thenReturn(Stream.of(countries).onClose(() -> closed.set(true)));
+    }
+
+    private String run(CountryExportService.Format format, boolean gzip) throws Exception {
+        var out = new ByteArrayOutputStream();
+        service.export(out, format, gzip);
+        byte[] body = gzip ? new GZIPInputStream(new ByteArrayInputStream(out.toByteArray())).readAllBytes() : out.toByteArray();
+        return new String(body, StandardCharsets.UTF_8);
+    }
+
+    @Test
+    void ndjson_writesOneObjectPerRow_detachesEachRow_andClosesTheCursor() throws Exception {
+        stored(new Country("BE", "BEL", "056", "Belgium", "####", "^(\\d{4})$", null),
+               new Country("CO", "Colombia", null, null));
+
+        String[] lines = run(CountryExportService.Format.NDJSON, false).split("\n");
+
+        assertThat(lines).containsExactly(
+                "{\"cca2\":\"BE\",\"name\":\"Belgium\",\"postalFormat\":\"####\",\"postalRegex\":\"^(\\\\d{4})$\",\"cca3\":\"BEL\",\"ccn3\":\"056\"}",
+                "{\"cca2\":\"CO\",\"name\":\"Colombia\",\"postalFormat\":null,\"postalRegex\":null,\"cca3\":null,\"ccn3\":null}");
+        verify(em, times(2)).detach(any());
+        assertThat(closed).isTrue();
+    }
+
+    @Test
+    void csv_writesHeader_andQuotesFieldsThatNeedIt() throws Exception {
+        stored(new Country("KR", "KOR", "410", "Korea, \"South\"", "SEOUL ###-###", "^(?:SEOUL)*(\\d{6})$", null));
+
+        assertThat(run(CountryExportService.Format.CSV, false)).isEqualTo("""
+                cca2,cca3,ccn3,name,postalFormat,postalRegex
+                KR,KOR,410,"Korea, ""South\"\"",SEOUL ###-###,^(?:SEOUL)*(\\d{6})$
+                """);
+    }
+
+    @Test
+    void gzip_producesACompleteStream() throws Exception {
+        stored(new Country("NL", "Netherlands", "#### @@", "^(\\d{4}[A-Z]{2})$"));
+
+        assertThat(run(CountryExportService.Format.NDJSON, true)).startsWith("{\"cca2\":\"NL\"").endsWith("}\n");
+    }
+
+    @Test
+    void lastModified_isTheLatestFetch_toTheSecond() {
+        when(repo.lastFetchedAt()).thenReturn(Instant.parse("2024-05-01T10:15:30.750Z"));
+        assertThat(service.lastModified()).contains(Instant.parse("2024-05-01T10:15:30Z"));
+
+        when(repo.lastFetchedAt()).thenReturn(null);
+        assertThat(service.lastModified()).isEmpty();
+    }
+}
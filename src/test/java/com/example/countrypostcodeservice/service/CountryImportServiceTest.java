@@ -1,28 +1,56 @@
 package com.example.countrypostcodeservice.service;
 
 import com.example.countrypostcodeservice.domain.Country;
+import com.example.countrypostcodeservice.exception.CountryImportException;
 import com.example.countrypostcodeservice.repository.CountryRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import okhttp3.mockwebserver.Dispatcher;
 import okhttp3.mockwebserver.MockResponse;
 import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
 
 import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyList;
 import static org.mockito.Mockito.*;
 
 class CountryImportServiceTest {
 
     private MockWebServer server;
+    private CountryCache cache;
+    private SimpleMeterRegistry registry;
+    private CountryMetrics metrics;
+    private UpstreamGuard guard;
 
     @BeforeEach
     void setup() throws IOException {
         server = new MockWebServer();
         server.start();
+        cache = new CountryCache(100, Duration.ofMinutes(1));
+        registry = new SimpleMeterRegistry();
+        metrics = new CountryMetrics(registry);
+        guard = lenientGuard(registry);
     }
 
     @AfterEach
@@ -30,12 +58,31 @@ class CountryImportServiceTest {
         server.shutdown();
     }
 
+    /** Plain single attempts; retries and hedging are covered in UpstreamCallPolicyTest. */
+    static UpstreamCallPolicy noRetries() {
+        return new UpstreamCallPolicy(Duration.ofSeconds(5), Duration.ofSeconds(10), 0,
+                Duration.ZERO, Duration.ZERO, 0, false, Duration.ZERO, Duration.ZERO);
+    }
+
+    /** A breaker that never opens and a bulkhead that never rejects; both are covered in UpstreamGuardTest. */
+    static UpstreamGuard lenientGuard(MeterRegistry registry) {
+        return new UpstreamGuard(100, 100, 100, 100, Duration.ofMinutes(1), Duration.ofSeconds(1), 1,
+                1000, 1000, Duration.ofSeconds(10), registry);
+    }
+
+    private CountryImportService newService(WebClient client, CountryRepository repo) {
+        return new CountryImportService(client, repo, cache, metrics, noRetries(), guard,
+                Schedulers.boundedElastic(), Duration.ofSeconds(5));
+    }
+
     @Test
     void fetchAndSave_mapsAndPersists_Netherlands() throws Exception {
         // given upstream returns a SINGLE OBJECT for NL
         String body = """
             {
               "cca2": "NL",
+              "cca3": "NLD",
+              "ccn3": "528",
               "name": { "common": "Netherlands" },
               "postalCode": { "format": "#### @@", "regex": "^(\\\\d{4}[A-Z]{2})$" }
             }
@@ -51,7 +98,7 @@ class CountryImportServiceTest {
         CountryRepository repo = mock(CountryRepository.class);
         when(repo.save(any(Country.class))).thenAnswer(inv -> inv.getArgument(0));
 
-        CountryImportService service = new CountryImportService(client, repo);
+        CountryImportService service = newService(client, repo);
 
         // when
         Optional<Country> savedOpt = service.fetchAndSave("nl");
@@ -63,14 +110,19 @@ class CountryImportServiceTest {
         assertThat(saved.getCommonName()).isEqualTo("Netherlands");
         assertThat(saved.getPostalFormat()).isEqualTo("#### @@");
         assertThat(saved.getPostalRegex()).isEqualTo("^(\\d{4}[A-Z]{2})$");
+        assertThat(saved.getCca3()).isEqualTo("NLD");
+        assertThat(saved.getCcn3()).isEqualTo("528");
 
         // verify request path uses /alpha/{code} and our fields filter
         var req = server.takeRequest();
         assertThat(req.getPath())
                 .startsWith("/v3.1/alpha/nl")
-                .contains("fields=name,postalCode,cca2");
+                .contains("fields=name,postalCode,cca2,cca3,ccn3");
 
         verify(repo, times(1)).save(any(Country.class));
+        assertThat(cache.get("NL")).isSameAs(saved);
+        assertThat(cache.get("nld")).isSameAs(saved);
+        assertThat(cache.get("528")).isSameAs(saved);
     }
 
     @Test
@@ -82,13 +134,41 @@ class CountryImportServiceTest {
                 .build();
         CountryRepository repo = mock(CountryRepository.class);
 
-        CountryImportService service = new CountryImportService(client, repo);
+        CountryImportService service = newService(client, repo);
 
         Optional<Country> result = service.fetchAndSave("xx");
         assertThat(result).isEmpty();
         verify(repo, never()).save(any());
     }
 
+    @Test
+    void fetchAndSave_timesUpstreamCalls_byOutcome() {
+        server.enqueue(new MockResponse().setResponseCode(200)
+                .setHeader("Content-Type", "application/json")
+                .setBody("{\"cca2\":\"NL\",\"name\":{\"common\":\"Netherlands\"}}"));
+        server.enqueue(new MockResponse().setResponseCode(404));
+        server.enqueue(new MockResponse().setResponseCode(500));
+
+        WebClient client = WebClient.builder()
+                .baseUrl(server.url("/").toString())
+                .build();
+        CountryRepository repo = mock(CountryRepository.class);
+        when(repo.save(any(Country.class))).thenAnswer(inv -> inv.getArgument(0));
+
+        CountryImportService service = newService(client, repo);
+
+        assertThat(service.fetchAndSave("nl")).isPresent();
+        assertThat(service.fetchAndSave("xx")).isEmpty();
+        assertThatThrownBy(() -> service.fetchAndSave("de")).isInstanceOf(CountryImportException.class);
+
+        for (String outcome : List.of("success", "not_found", "error")) {
+            var timer = registry.get(CountryMetrics.UPSTREAM_REQUESTS)
+                    .tags("uri", "/v3.1/alpha/{code}", "outcome", outcome)
+                    .timer();
+            assertThat(timer.count()).as(outcome).isEqualTo(1);
+        }
+    }
+
     @Test
     void fetchAndSave_returnsEmpty_whenCommonNameMissing() {
         // single object with empty 'name'
@@ -108,7 +188,7 @@ class CountryImportServiceTest {
                 .build();
         CountryRepository repo = mock(CountryRepository.class);
 
-        CountryImportService service = new CountryImportService(client, repo);
+        CountryImportService service = newService(client, repo);
 
         Optional<Country> result = service.fetchAndSave("co");
         assertThat(result).isEmpty();
@@ -133,7 +213,7 @@ class CountryImportServiceTest {
         CountryRepository repo = mock(CountryRepository.class);
         when(repo.save(any(Country.class))).thenAnswer(inv -> inv.getArgument(0));
 
-        var service = new CountryImportService(client, repo);
+        var service = newService(client, repo);
 
         Optional<Country> saved = service.fetchAndSave("co");
         assertThat(saved).isPresent();
@@ -164,7 +244,7 @@ class CountryImportServiceTest {
         CountryRepository repo = mock(CountryRepository.class);
         when(repo.save(any(Country.class))).thenAnswer(inv -> inv.getArgument(0));
 
-        var service = new CountryImportService(client, repo);
+        var service = newService(client, repo);
 
         Optional<Country> saved = service.fetchAndSave("cn");
         assertThat(saved).isPresent();
@@ -176,4 +256,335 @@ class CountryImportServiceTest {
 
         verify(repo, times(1)).save(any(Country.class));
     }
+
+    @Test
+    void fetchAndSave_coalescesConcurrentCallers_intoSingleUpstreamCall() throws Exception {
+        String body = """
+            {
+              "cca2": "NL",
+              "name": { "common": "Netherlands" },
+              "postalCode": { "format": "#### @@", "regex": "^(\\\\d{4}[A-Z]{2})$" }
+            }
+            """;
+        // slow response keeps the first fetch in flight while the others arrive
+        server.enqueue(new MockResponse().setResponseCode(200)
+                .setHeader("Content-Type", "application/json")
+                .setBody(body)
+                .setHeadersDelay(300, TimeUnit.MILLISECONDS));
+
+        WebClient client = WebClient.builder().baseUrl(server.url("/").toString()).build();
+        CountryRepository repo = mock(CountryRepository.class);
+        when(repo.save(any(Country.class))).thenAnswer(inv -> inv.getArgument(0));
+        var service = newService(client, repo);
+
+        int callers = 16;
+        ExecutorService pool = Executors.newFixedThreadPool(callers);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Optional<Country>>> results = new ArrayList<>();
+        try {
+            for (int i = 0; i < callers; i++) {
+                String code = i % 2 == 0 ? "nl" : "NL";
+                results.add(pool.submit(() -> {
+                    start.await();
+                    return service.fetchAndSave(code);
+                }));
+            }
+            start.countDown();
+
+            for (Future<Optional<Country>> f : results) {
+                assertThat(f.get(5, TimeUnit.SECONDS)).get()
+                        .extracting(Country::getCommonName).isEqualTo("Netherlands");
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+
+        assertThat(server.getRequestCount()).isEqualTo(1);
+        verify(repo, times(1)).save(any(Country.class));
+    }
+
+    @Test
+    void fetchAndSave_sharesUpstreamError_withAllWaiters() throws Exception {
+        server.enqueue(new MockResponse().setResponseCode(500)
+                .setHeadersDelay(300, TimeUnit.MILLISECONDS));
+
+        WebClient client = WebClient.builder().baseUrl(server.url("/").toString()).build();
+        CountryRepository repo = mock(CountryRepository.class);
+        var service = newService(client, repo);
+
+        int callers = 8;
+        ExecutorService pool = Executors.newFixedThreadPool(callers);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Optional<Country>>> results = new ArrayList<>();
+        try {
+            for (int i = 0; i < callers; i++) {
+                results.add(pool.submit(() -> {
+                    start.await();
+                    return service.fetchAndSave("de");
+                }));
+            }
+            start.countDown();
+
+            for (Future<Optional<Country>> f : results) {
+                assertThatThrownBy(() -> f.get(5, TimeUnit.SECONDS))
+                        .hasCauseInstanceOf(CountryImportException.class);
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+
+        assertThat(server.getRequestCount()).isEqualTo(1);
+        verify(repo, never()).save(any());
+    }
+
+    @Test
+    void fetchAndSave_waiterTimesOut_whenInFlightFetchIsTooSlow() throws Exception {
+        server.enqueue(new MockResponse().setResponseCode(404)
+                .setHeadersDelay(1, TimeUnit.SECONDS));
+
+        WebClient client = WebClient.builder().baseUrl(server.url("/").toString()).build();
+        var service = new CountryImportService(client, mock(CountryRepository.class), cache, metrics, noRetries(), guard,
+                Schedulers.boundedElastic(), Duration.ofMillis(100));
+
+        ExecutorService pool = Executors.newSingleThreadExecutor();
+        try {
+            Future<Optional<Country>> leader = pool.submit(() -> service.fetchAndSave("xx"));
+            server.takeRequest(5, TimeUnit.SECONDS); // leader is now waiting on upstream
+
+            assertThatThrownBy(() -> service.fetchAndSave("XX"))
+                    .isInstanceOf(CountryImportException.class)
+                    .hasMessageContaining("Timed out");
+            assertThat(leader.get(5, TimeUnit.SECONDS)).isEmpty();
+        } finally {
+            pool.shutdownNow();
+        }
+        assertThat(server.getRequestCount()).isEqualTo(1);
+    }
+
+    @Test
+    void fetchAndSave_doesNotWaitOnTheJpaScheduler() throws Exception {
+        server.enqueue(new MockResponse().setResponseCode(200)
+                .setHeader("Content-Type", "application/json")
+                .setBody("{\"cca2\":\"BE\",\"name\":{\"common\":\"Belgium\"}}"));
+        WebClient client = WebClient.builder().baseUrl(server.url("/").toString()).build();
+        CountryRepository repo = mock(CountryRepository.class);
+        when(repo.save(any(Country.class))).thenAnswer(inv -> inv.getArgument(0));
+        Scheduler jpa = Schedulers.newBoundedElastic(1, 10, "test-jpa");
+        var service = new CountryImportService(client, repo, cache, metrics, noRetries(), guard, jpa, Duration.ofSeconds(5));
+        CountDownLatch release = new CountDownLatch(1);
+        try {
+            // the only JPA thread is busy, as it is when the caller itself runs on it
+            jpa.schedule(() -> {
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+
+            assertThat(service.fetchAndSave("BE")).get().extracting(Country::getCommonName).isEqualTo("Belgium");
+        } finally {
+            release.countDown();
+            jpa.dispose();
+        }
+    }
+
+    @Test
+    void importAll_streamsArray_andSavesInBatches() throws Exception {
+        String body = """
+            [
+              { "cca2": "NL", "name": { "common": "Netherlands" }, "postalCode": { "format": "#### @@", "regex": "^(\\\\d{4}[A-Z]{2})$" } },
+              { "cca2": "CO", "name": { "common": "Colombia" } },
+              { "cca2": "AQ", "name": {} },
+              { "cca2": "CN", "name": { "common": "China" }, "postalCode": { "format": "######", "regex": "^(\\\\d{6})$" } }
+            ]
+            """;
+        server.enqueue(new MockResponse().setResponseCode(200)
+                .setHeader("Content-Type", "application/json")
+                .setBody(body));
+
+        WebClient client = WebClient.builder().baseUrl(server.url("/").toString()).build();
+        CountryRepository repo = mock(CountryRepository.class);
+        when(repo.saveAll(anyList())).thenAnswer(inv -> inv.getArgument(0));
+        var service = newService(client, repo);
+
+        int saved = service.importAll(2, Duration.ofSeconds(5));
+
+        assertThat(saved).isEqualTo(3);
+        verify(repo, times(2)).saveAll(anyList());
+        verify(repo, never()).save(any());
+        assertThat(cache.get("NL").getPostalRegex()).isEqualTo("^(\\d{4}[A-Z]{2})$");
+        assertThat(cache.get("CN")).isNotNull();
+        assertThat(cache.get("AQ")).isNull();
+
+        var req = server.takeRequest();
+        assertThat(req.getPath())
+                .startsWith("/v3.1/all")
+                .contains("fields=name,postalCode,cca2");
+    }
+
+    @Test
+    void importAll_wrapsUpstreamFailure() {
+        server.enqueue(new MockResponse().setResponseCode(503));
+
+        WebClient client = WebClient.builder().baseUrl(server.url("/").toString()).build();
+        CountryRepository repo = mock(CountryRepository.class);
+        var service = newService(client, repo);
+
+        assertThatThrownBy(() -> service.importAll(50, Duration.ofSeconds(5)))
+                .isInstanceOf(CountryImportException.class)
+                .hasMessageContaining("503");
+        verify(repo, never()).saveAll(anyList());
+    }
+
+    @Test
+    void fetchAndSaveAll_usesOneUpstreamCall_andOneBatchSave() throws Exception {
+        String body = """
+            [
+              { "cca2": "NL", "name": { "common": "Netherlands" }, "postalCode": { "format": "#### @@", "regex": "^(\\\\d{4}[A-Z]{2})$" } },
+              { "cca2": "DE", "name": { "common": "Germany" }, "postalCode": { "format": "#####", "regex": "^(\\\\d{5})$" } }
+            ]
+            """;
+        server.enqueue(new MockResponse().setResponseCode(200)
+                .setHeader("Content-Type", "application/json")
+                .setBody(body));
+
+        WebClient client = WebClient.builder().baseUrl(server.url("/").toString()).build();
+        CountryRepository repo = mock(CountryRepository.class);
+        when(repo.saveAll(anyList())).thenAnswer(inv -> inv.getArgument(0));
+        var service = newService(client, repo);
+
+        List<Country> saved = service.fetchAndSaveAll(List.of("NL", "DE", "XX"));
+
+        assertThat(saved).extracting(Country::getCca2).containsExactly("NL", "DE");
+        assertThat(server.getRequestCount()).isEqualTo(1);
+        verify(repo, times(1)).saveAll(anyList());
+        assertThat(cache.get("DE")).isNotNull();
+
+        var req = server.takeRequest();
+        assertThat(req.getPath())
+                .startsWith("/v3.1/alpha?")
+                .contains("codes=NL,DE,XX")
+                .contains("fields=name,postalCode,cca2");
+    }
+
+    @Test
+    void fetchedCountries_carryAFetchTime_whenReturnedPersistedAndCached() {
+        String nl = "{ \"cca2\": \"NL\", \"cca3\": \"NLD\", \"name\": { \"common\": \"Netherlands\" } }";
+        server.enqueue(new MockResponse().setResponseCode(200)
+                .setHeader("Content-Type", "application/json")
+                .setBody(nl));
+        server.enqueue(new MockResponse().setResponseCode(200)
+                .setHeader("Content-Type", "application/json")
+                .setBody("[{ \"cca2\": \"DE\", \"cca3\": \"DEU\", \"name\": { \"common\": \"Germany\" } }]"));
+
+        WebClient client = WebClient.builder().baseUrl(server.url("/").toString()).build();
+        CountryRepository repo = mock(CountryRepository.class);
+        when(repo.save(any(Country.class))).thenAnswer(inv -> inv.getArgument(0));
+        var service = newService(client, repo);
+        Instant before = Instant.now();
+
+        Country saved = service.fetchAndSave("NL").orElseThrow();
+        assertThat(saved.getFetchedAt()).isNotNull().isAfterOrEqualTo(before);
+        verify(repo).save(argThat(c -> c.getFetchedAt() != null));
+        assertThat(cache.get("NL").getFetchedAt()).isNotNull();
+
+        List<Country> fetched = service.fetchAll(List.of("DE"));
+        assertThat(fetched).singleElement()
+                .satisfies(c -> assertThat(c.getFetchedAt()).isNotNull().isAfterOrEqualTo(before));
+    }
+
+    @Test
+    void fetchAll_splitsLongCodeLists_intoBoundedCalls() throws Exception {
+        for (int i = 0; i < 3; i++) {
+            server.enqueue(new MockResponse().setResponseCode(200)
+                    .setHeader("Content-Type", "application/json")
+                    .setBody("[{ \"cca2\": \"C" + i + "\", \"name\": { \"common\": \"Country " + i + "\" } }]"));
+        }
+        WebClient client = WebClient.builder().baseUrl(server.url("/").toString()).build();
+        var service = newService(client, mock(CountryRepository.class));
+        List<String> codes = new ArrayList<>();
+        for (int i = 0; i < 2 * CountryImportService.MAX_CODES_PER_CALL + 1; i++) {
+            codes.add(String.format("%c%c", 'A' + i / 26, 'A' + i % 26));
+        }
+
+        List<Country> fetched = service.fetchAll(codes);
+
+        assertThat(fetched).extracting(Country::getCca2).containsExactly("C0", "C1", "C2");
+        assertThat(server.getRequestCount()).isEqualTo(3);
+        assertThat(server.takeRequest().getRequestUrl().queryParameter("codes").split(","))
+                .hasSize(CountryImportService.MAX_CODES_PER_CALL);
+        server.takeRequest();
+        assertThat(server.takeRequest().getRequestUrl().queryParameter("codes")).isEqualTo("DW");
+    }
+
+    @Test
+    void fetchAndSaveAll_returnsEmpty_on404() {
+        server.enqueue(new MockResponse().setResponseCode(404));
+
+        WebClient client = WebClient.builder().baseUrl(server.url("/").toString()).build();
+        CountryRepository repo = mock(CountryRepository.class);
+        var service = newService(client, repo);
+
+        assertThat(service.fetchAndSaveAll(List.of("XX", "YY"))).isEmpty();
+        verify(repo, never()).saveAll(anyList());
+    }
+
+    @Test
+    void fetchAndSaveAsync_keepsThroughput_whenUpstreamIsSlow() {
+        // every response takes 300 ms; with only 2 JPA threads a blocking client would need ~15 s for 100 codes
+        server.setDispatcher(new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) {
+                String code = request.getRequestUrl().pathSegments().get(2).toUpperCase();
+                return new MockResponse().setResponseCode(200)
+                        .setHeader("Content-Type", "application/json")
+                        .setBody("{\"cca2\":\"" + code + "\",\"name\":{\"common\":\"Country " + code + "\"}}")
+                        .setHeadersDelay(300, TimeUnit.MILLISECONDS);
+            }
+        });
+
+        WebClient client = WebClient.builder().baseUrl(server.url("/").toString()).build();
+        CountryRepository repo = mock(CountryRepository.class);
+        when(repo.save(any(Country.class))).thenAnswer(inv -> inv.getArgument(0));
+        Scheduler jpa = Schedulers.newBoundedElastic(2, 1000, "test-jpa");
+        var service = new CountryImportService(client, repo, cache, metrics, noRetries(), guard, jpa, Duration.ofSeconds(5));
+
+        int codes = 100;
+        try {
+            long start = System.nanoTime();
+            List<Country> saved = Flux.range(0, codes)
+                    .flatMap(i -> service.fetchAndSaveAsync(String.format("%c%c", 'A' + i / 26, 'A' + i % 26)), codes)
+                    .collectList()
+                    .block(Duration.ofSeconds(10));
+            Duration elapsed = Duration.ofNanos(System.nanoTime() - start);
+
+            assertThat(saved).hasSize(codes);
+            assertThat(server.getRequestCount()).isEqualTo(codes);
+            assertThat(elapsed).isLessThan(Duration.ofSeconds(3));
+        } finally {
+            jpa.dispose();
+        }
+    }
+
+    @Test
+    void fetchAndSaveAsync_sharesInFlightFetch_withBlockingCallers() throws Exception {
+        server.enqueue(new MockResponse().setResponseCode(200)
+                .setHeader("Content-Type", "application/json")
+                .setBody("{\"cca2\":\"BE\",\"name\":{\"common\":\"Belgium\"}}")
+                .setHeadersDelay(300, TimeUnit.MILLISECONDS));
+
+        WebClient client = WebClient.builder().baseUrl(server.url("/").toString()).build();
+        CountryRepository repo = mock(CountryRepository.class);
+        when(repo.save(any(Country.class))).thenAnswer(inv -> inv.getArgument(0));
+        var service = newService(client, repo);
+
+        Mono<Country> async = service.fetchAndSaveAsync("be").cache();
+        async.subscribe();
+        Optional<Country> blocking = service.fetchAndSave("BE");
+
+        assertThat(blocking).get().extracting(Country::getCommonName).isEqualTo("Belgium");
+        assertThat(async.block(Duration.ofSeconds(5))).isSameAs(blocking.get());
+        assertThat(server.getRequestCount()).isEqualTo(1);
+    }
 }
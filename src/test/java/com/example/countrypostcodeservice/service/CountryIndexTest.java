@@ -0,0 +1,91 @@
+package com.example.countrypostcodeservice.service;
+
+import com.example.countrypostcodeservice.domain.Country;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CountryIndexTest {
+
+    @Test
+    void get_foldsCase_andRejectsUnknownCodes() {
+        var index = new CountryIndex();
+        var nl = new Country("NL", "Netherlands", "#### @@", "^(\\d{4}[A-Z]{2})$");
+        index.put(nl);
+
+        assertThat(index.get("NL")).isSameAs(nl);
+        assertThat(index.get("nl")).isSameAs(nl);
+        assertThat(index.get("nL")).isSameAs(nl);
+        assertThat(index.get("NLD")).isNull();
+        assertThat(index.get("N")).isNull();
+        assertThat(index.get("N1")).isNull();
+        assertThat(index.get("É L")).isNull();
+        assertThat(index.get(null)).isNull();
+    }
+
+    @Test
+    void slots_coverAllCodes_withoutCollisions() {
+        assertThat(CountryIndex.slot("AA")).isZero();
+        assertThat(CountryIndex.slot("ZZ")).isEqualTo(26 * 26 - 1);
+        assertThat(CountryIndex.slot("AB")).isNotEqualTo(CountryIndex.slot("BA"));
+    }
+
+    @Test
+    void writes_publishNewArray_andLeaveOtherSlotsIntact() {
+        var index = new CountryIndex();
+        var de = new Country("DE", "Germany", "#####", "^(\\d{5})$");
+        var cn = new Country("CN", "China", "######", "^(\\d{6})$");
+        index.putAll(List.of(de, cn));
+
+        var cnRefreshed = new Country("CN", "China", "#####", "^(\\d{5})$");
+        index.put(cnRefreshed);
+        assertThat(index.get("CN")).isSameAs(cnRefreshed);
+        assertThat(index.get("DE")).isSameAs(de);
+
+        index.remove("de");
+        assertThat(index.get("DE")).isNull();
+        assertThat(index.get("CN")).isSameAs(cnRefreshed);
+
+        index.clear();
+        assertThat(index.get("CN")).isNull();
+    }
+
+    @Test
+    void get_resolvesAlpha3AndNumericCodes_toTheSameCountry() {
+        var index = new CountryIndex();
+        var be = new Country("BE", "BEL", "056", "Belgium", "####", "^(\\d{4})$", null);
+        index.put(be);
+
+        assertThat(index.get("BEL")).isSameAs(be);
+        assertThat(index.get("bel")).isSameAs(be);
+        assertThat(index.get("056")).isSameAs(be);
+        assertThat(index.get("56")).isSameAs(be);
+        assertThat(index.get("NLD")).isNull();
+        assertThat(index.get("528")).isNull();
+        assertThat(index.get("0560")).isNull();
+    }
+
+    @Test
+    void writes_keepAlternateCodesInStep_withTheirCountry() {
+        var index = new CountryIndex();
+        var nl = new Country("NL", "NLD", "528", "Netherlands", "#### @@", "^(\\d{4}[A-Z]{2})$", null);
+        var de = new Country("DE", "DEU", "276", "Germany", "#####", "^(\\d{5})$", null);
+        index.putAll(List.of(nl, de));
+
+        var nlRenumbered = new Country("NL", "NLD", "529", "Netherlands", "#### @@", "^(\\d{4}[A-Z]{2})$", null);
+        index.put(nlRenumbered);
+        assertThat(index.get("528")).isNull();
+        assertThat(index.get("529")).isSameAs(nlRenumbered);
+        assertThat(index.get("NLD")).isSameAs(nlRenumbered);
+
+        index.remove("DEU");
+        assertThat(index.get("DE")).isNull();
+        assertThat(index.get("276")).isNull();
+        assertThat(index.get("NLD")).isSameAs(nlRenumbered);
+
+        index.clear();
+        assertThat(index.get("529")).isNull();
+    }
+}
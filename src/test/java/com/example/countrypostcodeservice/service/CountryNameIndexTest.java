@@ -0,0 +1,85 @@
+package com.example.countrypostcodeservice.service;
+
+import com.example.countrypostcodeservice.domain.Country;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CountryNameIndexTest {
+
+    private static final List<Country> COUNTRIES = List.of(
+            country("NL", "Netherlands"),
+            country("DE", "Germany"),
+            country("CI", "Côte d'Ivoire"),
+            country("GB", "United Kingdom"),
+            country("US", "United States"),
+            country("AE", "United Arab Emirates"),
+            country("IS", "Iceland"),
+            country("FI", "Finland"),
+            country("NZ", "New Zealand"),
+            country("NE", "Niger"),
+            country("NG", "Nigeria"));
+
+    private static Country country(String cca2, String name) {
+        return new Country(cca2, name, null, null);
+    }
+
+    private static List<String> codes(List<Country> countries) {
+        return countries.stream().map(Country::getCca2).toList();
+    }
+
+    private final CountryNameIndex index = new CountryNameIndex(COUNTRIES);
+
+    @Test
+    void prefix_isCaseInsensitive() {
+        assertThat(codes(index.search("Neth", 10))).containsExactly("NL");
+        assertThat(codes(index.search("NETHERLANDS", 10))).containsExactly("NL");
+        assertThat(codes(index.search("  germ ", 10))).containsExactly("DE");
+    }
+
+    @Test
+    void accents_areIgnored_onBothSides() {
+        assertThat(codes(index.search("cote", 10))).containsExactly("CI");
+        assertThat(codes(index.search("CÔTE D'", 10))).containsExactly("CI");
+        assertThat(codes(index.search("ivoire", 10))).containsExactly("CI");
+        assertThat(codes(index.search("Icéland", 10))).containsExactly("IS");
+    }
+
+    @Test
+    void ranks_exact_thenPrefix_thenWordPrefix_thenSubstring_andLimits() {
+        assertThat(codes(index.search("niger", 10))).containsExactly("NE", "NG");
+        assertThat(codes(index.search("united", 10))).containsExactly("US", "GB", "AE");
+        assertThat(codes(index.search("united", 2))).containsExactly("US", "GB");
+        assertThat(codes(index.search("land", 10))).containsExactly("FI", "IS", "NL", "NZ");
+        assertThat(codes(index.search("ger", 10))).containsExactly("DE", "NE", "NG");
+        assertThat(codes(index.search("states", 10))).containsExactly("US");
+    }
+
+    @Test
+    void shortQueries_matchWordPrefixesOnly_andBlankOrUnknownQueriesMatchNothing() {
+        assertThat(codes(index.search("ni", 10))).containsExactly("NE", "NG");
+        assertThat(codes(index.search("er", 10))).isEmpty();
+        assertThat(index.search(" ", 10)).isEmpty();
+        assertThat(index.search("atlantis", 10)).isEmpty();
+        assertThat(CountryNameIndex.EMPTY.search("neth", 10)).isEmpty();
+    }
+
+    @Test
+    void search_rebuildsTheIndex_whenTheCacheChanges() {
+        var cache = new CountryCache(100, Duration.ofMinutes(1));
+        var search = new CountrySearch(cache);
+        assertThat(search.search("neth", 10)).isEmpty();
+
+        cache.putAll(COUNTRIES);
+        CountryNameIndex built = search.index();
+        assertThat(codes(search.search("neth", 10))).containsExactly("NL");
+        assertThat(search.index()).isSameAs(built);
+
+        cache.invalidate("NL");
+        assertThat(search.search("neth", 10)).isEmpty();
+        assertThat(search.search("united", 500)).hasSize(3);
+    }
+}
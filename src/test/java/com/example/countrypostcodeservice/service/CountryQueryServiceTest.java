@@ -1,17 +1,44 @@
 package com.example.countrypostcodeservice.service;
 
 import com.example.countrypostcodeservice.domain.Country;
+import com.example.countrypostcodeservice.dto.CountryBatchResponse;
 import com.example.countrypostcodeservice.dto.CountryInfoResponse;
+import com.example.countrypostcodeservice.exception.CountryImportException;
+import com.example.countrypostcodeservice.exception.UpstreamUnavailableException;
 import com.example.countrypostcodeservice.repository.CountryRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+import reactor.test.StepVerifier;
 
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
 import java.util.Optional;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyList;
 import static org.mockito.Mockito.*;
 
 class CountryQueryServiceTest {
 
+    private static CountryCache newCache() {
+        return new CountryCache(100, Duration.ofMinutes(1));
+    }
+
+    private static CountryQueryService newService(CountryRepository repo, CountryImportService importer, CountryCache cache) {
+        return newService(repo, importer, cache, new SimpleMeterRegistry());
+    }
+
+    private static CountryQueryService newService(CountryRepository repo, CountryImportService importer,
+                                                  CountryCache cache, MeterRegistry registry) {
+        var freshness = new CountryFreshness(Duration.ofDays(1), Duration.ofDays(30), Duration.ofMinutes(1));
+        return new CountryQueryService(repo, importer, cache, freshness, new CountryMetrics(registry), Schedulers.boundedElastic());
+    }
+
     @Test
     void findOrFetch_prefersRepository_hit() {
         var repo = mock(CountryRepository.class);
@@ -20,7 +47,7 @@ class CountryQueryServiceTest {
         var nl = new Country("NL", "Netherlands", "#### @@", "^(\\d{4}[A-Z]{2})$");
         when(repo.findById("NL")).thenReturn(Optional.of(nl));
 
-        var service = new CountryQueryService(repo, importer);
+        var service = newService(repo, importer, newCache());
 
         Optional<CountryInfoResponse> dto = service.findOrFetchByCca2("nl");
         assertThat(dto).isPresent();
@@ -39,7 +66,7 @@ class CountryQueryServiceTest {
         var co = new Country("CO", "Colombia", null, null);
         when(importer.fetchAndSave("co")).thenReturn(Optional.of(co));
 
-        var service = new CountryQueryService(repo, importer);
+        var service = newService(repo, importer, newCache());
 
         Optional<CountryInfoResponse> dto = service.findOrFetchByCca2("co");
         assertThat(dto).isPresent();
@@ -53,7 +80,7 @@ class CountryQueryServiceTest {
         when(repo.findById("XX")).thenReturn(Optional.empty());
         when(importer.fetchAndSave("xx")).thenReturn(Optional.empty());
 
-        var service = new CountryQueryService(repo, importer);
+        var service = newService(repo, importer, newCache());
         assertThat(service.findOrFetchByCca2("xx")).isEmpty();
     }
 
@@ -64,7 +91,7 @@ class CountryQueryServiceTest {
         var nl = new Country("NL", "Netherlands", "#### @@", "^(\\d{4}[A-Z]{2})$");
         when(importer.fetchAndSave("nl")).thenReturn(Optional.of(nl));
 
-        var service = new CountryQueryService(repo, importer);
+        var service = newService(repo, importer, newCache());
 
         var dto = service.refreshFromSource("nl");
         assertThat(dto).isPresent();
@@ -79,7 +106,7 @@ class CountryQueryServiceTest {
         var cnEntity = new Country("CN", "China", "######", "^(\\d{6})$");
         when(importer.fetchAndSave("cn")).thenReturn(Optional.of(cnEntity));
 
-        var service = new CountryQueryService(repo, importer);
+        var service = newService(repo, importer, newCache());
 
         Optional<CountryInfoResponse> dto = service.findOrFetchByCca2("cn");
         assertThat(dto).isPresent();
@@ -90,4 +117,408 @@ class CountryQueryServiceTest {
 
         verify(importer, times(1)).fetchAndSave("cn");
     }
+
+    @Test
+    void findOrFetch_servesRepeatedReads_fromCache() {
+        var repo = mock(CountryRepository.class);
+        var importer = mock(CountryImportService.class);
+        var nl = new Country("NL", "Netherlands", "#### @@", "^(\\d{4}[A-Z]{2})$");
+        when(repo.findById("NL")).thenReturn(Optional.of(nl));
+
+        var service = newService(repo, importer, newCache());
+
+        assertThat(service.findOrFetchByCca2("nl")).isPresent();
+        assertThat(service.findOrFetchByCca2("NL")).isPresent();
+        assertThat(service.findOrFetchByCca2(" Nl ")).isPresent();
+
+        verify(repo, times(1)).findById("NL");
+        verifyNoInteractions(importer);
+    }
+
+    @Test
+    void findOrFetch_negativelyCaches_upstream404() {
+        var repo = mock(CountryRepository.class);
+        var importer = mock(CountryImportService.class);
+        when(repo.findById("XX")).thenReturn(Optional.empty());
+        when(importer.fetchAndSave(anyString())).thenReturn(Optional.empty());
+
+        var service = newService(repo, importer, newCache());
+
+        assertThat(service.findOrFetchByCca2("xx")).isEmpty();
+        assertThat(service.findOrFetchByCca2("XX")).isEmpty();
+
+        verify(repo, times(1)).findById("XX");
+        verify(importer, times(1)).fetchAndSave(anyString());
+    }
+
+    @Test
+    void refreshFromSource_overwritesCachedEntry() {
+        var repo = mock(CountryRepository.class);
+        var importer = mock(CountryImportService.class);
+        var cache = newCache();
+        cache.put(new Country("NL", "Holland", null, null));
+        var refreshed = new Country("NL", "Netherlands", "#### @@", "^(\\d{4}[A-Z]{2})$");
+        when(importer.fetchAndSave("NL")).thenAnswer(inv -> {
+            cache.put(refreshed);
+            return Optional.of(refreshed);
+        });
+
+        var service = newService(repo, importer, cache);
+        service.refreshFromSource("NL");
+
+        assertThat(service.findOrFetchByCca2("NL")).get()
+                .extracting(CountryInfoResponse::name).isEqualTo("Netherlands");
+        verify(repo, never()).findById(anyString());
+    }
+
+    @Test
+    void validatePostcode_matchesAgainstPostalRegex() {
+        var repo = mock(CountryRepository.class);
+        var importer = mock(CountryImportService.class);
+        var nl = new Country("NL", "Netherlands", "#### @@", "^(\\d{4}[A-Z]{2})$");
+        when(repo.findById("NL")).thenReturn(Optional.of(nl));
+
+        var service = newService(repo, importer, newCache());
+
+        assertThat(service.validatePostcode("nl", "1234AB")).get()
+                .satisfies(r -> {
+                    assertThat(r.cca2()).isEqualTo("NL");
+                    assertThat(r.valid()).isTrue();
+                    assertThat(r.postalFormat()).isEqualTo("#### @@");
+                });
+        assertThat(service.validatePostcode("NL", "1234 AB").get().valid()).isFalse();
+        assertThat(service.validatePostcode("NL", "12345").get().valid()).isFalse();
+
+        verify(repo, times(1)).findById("NL");
+    }
+
+    @Test
+    void normalizePostcode_formatsMessyInput_andValidatesIt() {
+        var repo = mock(CountryRepository.class);
+        var importer = mock(CountryImportService.class);
+        var cache = newCache();
+        cache.put(new Country("NL", "Netherlands", "#### @@", "^(\\d{4}[A-Z]{2})$"));
+        cache.put(new Country("CA", "Canada", "@#@ #@#", "^([ABCEGHJKLMNPRSTVXY]\\d[ABCEGHJKLMNPRSTVWXYZ]) ?(\\d[ABCEGHJKLMNPRSTVWXYZ]\\d)$"));
+        cache.put(new Country("CO", "Colombia", null, null));
+
+        var service = newService(repo, importer, cache);
+
+        assertThat(service.normalizePostcode("nl", " 1234-ab ")).get()
+                .satisfies(r -> {
+                    assertThat(r.cca2()).isEqualTo("NL");
+                    assertThat(r.postcode()).isEqualTo(" 1234-ab ");
+                    assertThat(r.normalized()).isEqualTo("1234 AB");
+                    assertThat(r.valid()).isTrue();
+                    assertThat(r.postalFormat()).isEqualTo("#### @@");
+                });
+        assertThat(service.normalizePostcode("CA", "k1a0b1").get().normalized()).isEqualTo("K1A 0B1");
+        assertThat(service.normalizePostcode("CA", "W1A 0B1").get().valid()).isFalse();
+        assertThat(service.normalizePostcode("NL", "12345").get())
+                .satisfies(r -> {
+                    assertThat(r.normalized()).isEqualTo("12345");
+                    assertThat(r.valid()).isFalse();
+                });
+        assertThat(service.normalizePostcode("CO", "110-111").get().normalized()).isEqualTo("110111");
+        verifyNoInteractions(repo);
+    }
+
+    @Test
+    void validatePostcode_isFalse_whenCountryHasNoOrInvalidRegex() {
+        var repo = mock(CountryRepository.class);
+        var importer = mock(CountryImportService.class);
+        var cache = newCache();
+        cache.put(new Country("CO", "Colombia", null, null));
+        cache.put(new Country("ZZ", "Broken", null, "^(\\d{4}"));
+
+        var service = newService(repo, importer, cache);
+
+        assertThat(service.validatePostcode("CO", "110111").get().valid()).isFalse();
+        assertThat(service.validatePostcode("ZZ", "1234").get().valid()).isFalse();
+    }
+
+    @Test
+    void validatePostcode_usesNewRegex_afterRefresh() {
+        var repo = mock(CountryRepository.class);
+        var importer = mock(CountryImportService.class);
+        var cache = newCache();
+        cache.put(new Country("CN", "China", "######", "^(\\d{6})$"));
+        var refreshed = new Country("CN", "China", "#####", "^(\\d{5})$");
+        when(importer.fetchAndSave("CN")).thenAnswer(inv -> {
+            cache.put(refreshed);
+            return Optional.of(refreshed);
+        });
+
+        var service = newService(repo, importer, cache);
+        assertThat(service.validatePostcode("CN", "100000").get().valid()).isTrue();
+
+        service.refreshFromSource("CN");
+
+        assertThat(service.validatePostcode("CN", "100000").get().valid()).isFalse();
+        assertThat(service.validatePostcode("CN", "10000").get().valid()).isTrue();
+    }
+
+    @Test
+    void findOrFetchAll_combinesCache_singleQuery_andSingleUpstreamCall() {
+        var repo = mock(CountryRepository.class);
+        var importer = mock(CountryImportService.class);
+        var cache = newCache();
+        cache.put(new Country("NL", "Netherlands", "#### @@", "^(\\d{4}[A-Z]{2})$"));
+        when(repo.findAllById(List.of("BE", "XX", "DE")))
+                .thenReturn(List.of(new Country("DE", "Germany", "#####", "^(\\d{5})$")));
+        when(importer.fetchAndSaveAll(List.of("BE", "XX")))
+                .thenReturn(List.of(new Country("BE", "Belgium", "####", "^(\\d{4})$")));
+
+        var service = newService(repo, importer, cache);
+
+        CountryBatchResponse result = service.findOrFetchAll(List.of("be", "NL", "xx", "de", "NL"));
+
+        assertThat(result.countries()).extracting(CountryInfoResponse::cca2).containsExactly("BE", "NL", "DE");
+        assertThat(result.notFound()).containsExactly("XX");
+        verify(repo, times(1)).findAllById(anyList());
+        verify(importer, times(1)).fetchAndSaveAll(anyList());
+        verify(importer, never()).fetchAndSave(anyString());
+
+        // second call: everything answered from cache (including the negative entry)
+        assertThat(service.findOrFetchAll(List.of("XX", "DE")).notFound()).containsExactly("XX");
+        verifyNoMoreInteractions(repo, importer);
+    }
+
+    @Test
+    void findOrFetchAll_reportsCodesOfUnknownShapeNotFound_withoutAskingUpstream() {
+        var repo = mock(CountryRepository.class);
+        var importer = mock(CountryImportService.class);
+        var cache = newCache();
+        cache.put(new Country("NL", "Netherlands", "#### @@", "^(\\d{4}[A-Z]{2})$"));
+
+        var service = newService(repo, importer, cache);
+
+        CountryBatchResponse result = service.findOrFetchAll(List.of("ZZZZ", "NL", "N-L"));
+
+        assertThat(result.countries()).extracting(CountryInfoResponse::cca2).containsExactly("NL");
+        assertThat(result.notFound()).containsExactly("ZZZZ", "N-L");
+        verifyNoInteractions(repo, importer);
+    }
+
+    @Test
+    void findOrFetch_byAlpha3OrNumericCode_usesIndexedColumn_thenCache() {
+        var repo = mock(CountryRepository.class);
+        var importer = mock(CountryImportService.class);
+        var nl = new Country("NL", "NLD", "528", "Netherlands", "#### @@", "^(\\d{4}[A-Z]{2})$", Instant.now());
+        when(repo.findByCca3("NLD")).thenReturn(Optional.of(nl));
+
+        var service = newService(repo, importer, newCache());
+
+        assertThat(service.findOrFetchByCca2("nld")).map(CountryInfoResponse::cca2).contains("NL");
+        // the row is known now: every code for it is a cache hit
+        assertThat(service.findOrFetchByCca2("NLD")).map(CountryInfoResponse::cca2).contains("NL");
+        assertThat(service.findOrFetchByCca2("528")).map(CountryInfoResponse::cca2).contains("NL");
+        assertThat(service.findOrFetchByCca2("nl")).map(CountryInfoResponse::ccn3).contains("528");
+
+        verify(repo, times(1)).findByCca3("NLD");
+        verifyNoMoreInteractions(repo);
+        verifyNoInteractions(importer);
+    }
+
+    @Test
+    void findOrFetchAll_acceptsMixedCodeTypes_andAnswersInRequestOrder() {
+        var repo = mock(CountryRepository.class);
+        var importer = mock(CountryImportService.class);
+        var de = new Country("DE", "DEU", "276", "Germany", "#####", "^(\\d{5})$", Instant.now());
+        var be = new Country("BE", "BEL", "056", "Belgium", "####", "^(\\d{4})$", Instant.now());
+        when(repo.findByCca3In(List.of("DEU"))).thenReturn(List.of(de));
+        when(repo.findByCcn3In(List.of("056"))).thenReturn(List.of());
+        when(repo.findAllById(List.of("DE"))).thenReturn(List.of(de));
+        when(importer.fetchAndSaveAll(List.of("056"))).thenReturn(List.of(be));
+
+        var service = newService(repo, importer, newCache());
+
+        CountryBatchResponse result = service.findOrFetchAll(List.of("deu", "56", "DE"));
+
+        assertThat(result.countries()).extracting(CountryInfoResponse::cca2).containsExactly("DE", "BE", "DE");
+        assertThat(result.notFound()).isEmpty();
+        // found rows are cached under all their codes
+        assertThat(service.findOrFetchAll(List.of("276", "de")).countries())
+                .extracting(CountryInfoResponse::cca3).containsExactly("DEU", "DEU");
+        verify(importer, times(1)).fetchAndSaveAll(anyList());
+    }
+
+    @Test
+    void findOrFetchAsync_servesCacheHit_withoutTouchingRepository() {
+        var repo = mock(CountryRepository.class);
+        var importer = mock(CountryImportService.class);
+        var cache = newCache();
+        cache.put(new Country("NL", "Netherlands", "#### @@", "^(\\d{4}[A-Z]{2})$"));
+
+        var service = newService(repo, importer, cache);
+
+        StepVerifier.create(service.findOrFetchByCca2Async("nl"))
+                .assertNext(dto -> assertThat(dto.name()).isEqualTo("Netherlands"))
+                .verifyComplete();
+        verifyNoInteractions(repo, importer);
+    }
+
+    @Test
+    void findOrFetchAsync_readsRepository_thenUpstream_andCachesMisses() {
+        var repo = mock(CountryRepository.class);
+        var importer = mock(CountryImportService.class);
+        when(repo.findById("DE")).thenReturn(Optional.of(new Country("DE", "Germany", "#####", "^(\\d{5})$")));
+        when(repo.findById("CN")).thenReturn(Optional.empty());
+        when(repo.findById("XX")).thenReturn(Optional.empty());
+        when(importer.fetchAndSaveAsync("cn")).thenReturn(Mono.just(new Country("CN", "China", "######", "^(\\d{6})$")));
+        when(importer.fetchAndSaveAsync("xx")).thenReturn(Mono.empty());
+
+        var service = newService(repo, importer, newCache());
+
+        StepVerifier.create(service.findOrFetchByCca2Async("de"))
+                .assertNext(dto -> assertThat(dto.cca2()).isEqualTo("DE"))
+                .verifyComplete();
+        StepVerifier.create(service.findOrFetchByCca2Async("cn"))
+                .assertNext(dto -> assertThat(dto.cca2()).isEqualTo("CN"))
+                .verifyComplete();
+        StepVerifier.create(service.findOrFetchByCca2Async("xx")).verifyComplete();
+        StepVerifier.create(service.findOrFetchByCca2Async("XX")).verifyComplete();
+
+        verify(repo, times(1)).findById("XX");
+        verify(importer, times(1)).fetchAndSaveAsync("xx");
+        verify(importer, never()).fetchAndSave(anyString());
+    }
+
+    @Test
+    void findOrFetch_servesStaleRow_andRefreshesInBackground() {
+        var repo = mock(CountryRepository.class);
+        var importer = mock(CountryImportService.class);
+        var cache = newCache();
+        var stale = new Country("NL", "Holland", "#### @@", "^(\\d{4}[A-Z]{2})$", Instant.now().minus(Duration.ofDays(2)));
+        cache.put(stale);
+        when(importer.fetchAndSaveAsync("NL")).thenReturn(Mono.fromCallable(() -> {
+            var fresh = new Country("NL", "Netherlands", "#### @@", "^(\\d{4}[A-Z]{2})$");
+            cache.put(fresh);
+            return fresh;
+        }));
+
+        var service = newService(repo, importer, cache);
+
+        assertThat(service.findOrFetchByCca2("NL")).get()
+                .extracting(CountryInfoResponse::name).isEqualTo("Holland");
+        verify(importer, times(1)).fetchAndSaveAsync("NL");
+        verify(importer, never()).fetchAndSave(anyString());
+
+        // the background refresh has replaced the cached row; no further refresh needed
+        assertThat(service.findOrFetchByCca2("NL")).get()
+                .extracting(CountryInfoResponse::name).isEqualTo("Netherlands");
+        verify(importer, times(1)).fetchAndSaveAsync("NL");
+    }
+
+    @Test
+    void findOrFetch_refreshesExpiredRow_inline() {
+        var repo = mock(CountryRepository.class);
+        var importer = mock(CountryImportService.class);
+        var expired = new Country("CN", "China", "#####", "^(\\d{5})$", Instant.now().minus(Duration.ofDays(60)));
+        when(repo.findById("CN")).thenReturn(Optional.of(expired));
+        when(importer.fetchAndSave("CN"))
+                .thenReturn(Optional.of(new Country("CN", "China", "######", "^(\\d{6})$")));
+
+        var service = newService(repo, importer, newCache());
+
+        assertThat(service.findOrFetchByCca2("cn")).get()
+                .extracting(CountryInfoResponse::postalFormat).isEqualTo("######");
+        verify(importer, times(1)).fetchAndSave("CN");
+    }
+
+    @Test
+    void findOrFetch_servesExpiredRow_whenUpstreamIsDown() {
+        var repo = mock(CountryRepository.class);
+        var importer = mock(CountryImportService.class);
+        var cache = newCache();
+        cache.put(new Country("DE", "Germany", "#####", "^(\\d{5})$", Instant.now().minus(Duration.ofDays(60))));
+        when(importer.fetchAndSave("DE")).thenThrow(new CountryImportException("REST Countries returned 503", null));
+        when(importer.fetchAndSaveAsync("DE")).thenReturn(Mono.error(new CountryImportException("REST Countries returned 503", null)));
+
+        var service = newService(repo, importer, cache);
+
+        assertThat(service.findOrFetchByCca2("DE")).get()
+                .extracting(CountryInfoResponse::name).isEqualTo("Germany");
+        StepVerifier.create(service.findOrFetchByCca2Async("DE"))
+                .assertNext(dto -> assertThat(dto.name()).isEqualTo("Germany"))
+                .verifyComplete();
+    }
+
+    @Test
+    void failedRefresh_isNotRetried_onTheNextRead() {
+        var repo = mock(CountryRepository.class);
+        var importer = mock(CountryImportService.class);
+        var cache = newCache();
+        cache.put(new Country("DE", "Germany", "#####", "^(\\d{5})$", Instant.now().minus(Duration.ofDays(60))));
+        cache.put(new Country("NL", "Netherlands", "#### @@", "^(\\d{4}[A-Z]{2})$", Instant.now().minus(Duration.ofDays(2))));
+        when(importer.fetchAndSave("DE")).thenThrow(new CountryImportException("REST Countries returned 503", null));
+        when(importer.fetchAndSaveAsync("NL")).thenReturn(Mono.error(new CountryImportException("REST Countries returned 503", null)));
+
+        var service = newService(repo, importer, cache);
+
+        // expired: one inline attempt, then served as-is during the backoff
+        assertThat(service.findOrFetchByCca2("DE")).isPresent();
+        assertThat(service.findOrFetchByCca2("DE")).isPresent();
+        StepVerifier.create(service.findOrFetchByCca2Async("DE")).expectNextCount(1).verifyComplete();
+        verify(importer, times(1)).fetchAndSave("DE");
+        verify(importer, never()).fetchAndSaveAsync("DE");
+
+        // stale: one background attempt, then no more
+        service.findOrFetchByCca2("NL");
+        service.findOrFetchByCca2("NL");
+        verify(importer, times(1)).fetchAndSaveAsync("NL");
+    }
+
+    @Test
+    void findOrFetch_servesStoredData_withoutRefreshing_whileCircuitIsOpen() {
+        var repo = mock(CountryRepository.class);
+        var importer = mock(CountryImportService.class);
+        var cache = newCache();
+        cache.put(new Country("NL", "Holland", "#### @@", "^(\\d{4}[A-Z]{2})$", Instant.now().minus(Duration.ofDays(2))));
+        when(repo.findById("DE")).thenReturn(Optional.of(new Country("DE", "Germany", "#####", "^(\\d{5})$")));
+        when(repo.findById("CN")).thenReturn(Optional.empty());
+        when(importer.isCircuitOpen()).thenReturn(true);
+        when(importer.fetchAndSave("CN")).thenThrow(new UpstreamUnavailableException("REST Countries circuit breaker is OPEN", null));
+
+        var service = newService(repo, importer, cache);
+
+        assertThat(service.findOrFetchByCca2("NL")).get()
+                .extracting(CountryInfoResponse::name).isEqualTo("Holland");
+        assertThat(service.findOrFetchByCca2("DE")).get()
+                .extracting(CountryInfoResponse::name).isEqualTo("Germany");
+        assertThatThrownBy(() -> service.findOrFetchByCca2("CN")).isInstanceOf(UpstreamUnavailableException.class);
+        verify(importer, never()).fetchAndSaveAsync(anyString());
+    }
+
+    @Test
+    void findOrFetch_countsLookups_byOutcome() {
+        var repo = mock(CountryRepository.class);
+        var importer = mock(CountryImportService.class);
+        when(repo.findById("NL")).thenReturn(Optional.of(new Country("NL", "Netherlands", "#### @@", "^(\\d{4}[A-Z]{2})$")));
+        when(repo.findById("CN")).thenReturn(Optional.empty());
+        when(repo.findById("XX")).thenReturn(Optional.empty());
+        when(repo.findById("DE")).thenReturn(Optional.empty());
+        when(importer.fetchAndSave("CN")).thenReturn(Optional.of(new Country("CN", "China", "######", "^(\\d{6})$")));
+        when(importer.fetchAndSave("XX")).thenReturn(Optional.empty());
+        when(importer.fetchAndSave("DE")).thenThrow(new CountryImportException("REST Countries returned 503", null));
+
+        var registry = new SimpleMeterRegistry();
+        var service = newService(repo, importer, newCache(), registry);
+
+        service.findOrFetchByCca2("NL");   // database
+        service.findOrFetchByCca2("NL");   // cache
+        service.findOrFetchByCca2("CN");   // upstream
+        service.findOrFetchByCca2("XX");   // not found upstream
+        service.findOrFetchByCca2("XX");   // negatively cached
+        assertThatThrownBy(() -> service.findOrFetchByCca2("DE")).isInstanceOf(CountryImportException.class);
+
+        assertThat(lookups(registry, "database")).isEqualTo(1);
+        assertThat(lookups(registry, "cache")).isEqualTo(1);
+        assertThat(lookups(registry, "upstream")).isEqualTo(1);
+        assertThat(lookups(registry, "not_found")).isEqualTo(2);
+        assertThat(lookups(registry, "error")).isEqualTo(1);
+    }
+
+    private static double lookups(MeterRegistry registry, String outcome) {
+        return registry.get(CountryMetrics.LOOKUPS).tag("outcome", outcome).counter().count();
+    }
 }
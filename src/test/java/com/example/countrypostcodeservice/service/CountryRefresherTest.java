@@ -0,0 +1,106 @@
+package com.example.countrypostcodeservice.service;
+
+import com.example.countrypostcodeservice.domain.Country;
+import com.example.countrypostcodeservice.exception.CountryImportException;
+import com.example.countrypostcodeservice.repository.CountryRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class CountryRefresherTest {
+
+    private static final Instant LONG_AGO = Instant.now().minus(Duration.ofDays(2));
+
+    private final CountryRepository repo = mock(CountryRepository.class);
+    private final CountryImportService importer = mock(CountryImportService.class);
+    private final CountryCache cache = new CountryCache(100, Duration.ofMinutes(1));
+    private final CountrySnapshots snapshots = spy(new CountrySnapshots(new ObjectMapper()));
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    private CountryRefresher refresher(int batchSize) {
+        return new CountryRefresher(repo, importer, cache, snapshots,
+                new CountryFreshness(Duration.ofDays(1), Duration.ofDays(30), Duration.ofMinutes(1)),
+                new CountryMetrics(registry),
+                new TransactionTemplate(mock(PlatformTransactionManager.class)),
+                batchSize, Duration.ZERO);
+    }
+
+    private static Country nl(Instant fetchedAt) {
+        return new Country("NL", "Netherlands", "#### @@", "^(\\d{4}[A-Z]{2})$", fetchedAt);
+    }
+
+    private static Country de(String name, Instant fetchedAt) {
+        return new Country("DE", name, "#####", "^(\\d{5})$", fetchedAt);
+    }
+
+    @Test
+    void refresh_writesOnlyChangedRows_andRenewsTheRest() {
+        Country storedNl = nl(LONG_AGO);
+        Country storedDe = de("Germany", LONG_AGO);
+        Country freshBe = new Country("BE", "Belgium", "####", "^(\\d{4})$");
+        when(repo.findAll()).thenReturn(List.of(storedNl, storedDe, freshBe));
+        when(repo.findAllById(List.of("NL", "DE"))).thenReturn(List.of(storedNl, storedDe));
+        when(repo.saveAll(anyList())).thenAnswer(inv -> inv.getArgument(0));
+        Country fetchedDe = de("Deutschland", Instant.now());
+        when(importer.fetchAll(List.of("NL", "DE"))).thenReturn(List.of(nl(Instant.now()), fetchedDe));
+        cache.putAll(List.of(storedNl, storedDe));
+        snapshots.snapshotOf(storedNl);
+
+        CountryRefresher.Result result = refresher(50).refresh();
+
+        assertThat(result).isEqualTo(new CountryRefresher.Result(2, 1, 1));
+        verify(repo).saveAll(List.of(fetchedDe));
+        verify(repo).markFetched(eq(List.of("NL")), any(Instant.class));
+        verify(snapshots).invalidate("DE");
+        verify(snapshots, never()).invalidate("NL");
+        assertThat(cache.get("DE").getCommonName()).isEqualTo("Deutschland");
+        assertThat(cache.get("NL").getFetchedAt()).isAfter(LONG_AGO);
+        assertThat(registry.counter(CountryMetrics.REFRESH_CHECKED).count()).isEqualTo(2);
+        assertThat(registry.counter(CountryMetrics.REFRESH_CHANGED).count()).isEqualTo(1);
+        assertThat(registry.counter(CountryMetrics.REFRESH_SKIPPED).count()).isEqualTo(1);
+    }
+
+    @Test
+    void refresh_fetchesInBatches_andKeepsWhatItGot_whenALaterBatchFails() {
+        Country storedNl = nl(LONG_AGO);
+        Country storedDe = de("Germany", LONG_AGO);
+        when(repo.findAll()).thenReturn(List.of(storedNl, storedDe));
+        when(repo.findAllById(anyList())).thenReturn(List.of(storedNl, storedDe));
+        when(repo.saveAll(anyList())).thenAnswer(inv -> inv.getArgument(0));
+        when(importer.fetchAll(List.of("NL"))).thenReturn(List.of(new Country("NL", "Nederland", "#### @@", "^(\\d{4}[A-Z]{2})$")));
+        when(importer.fetchAll(List.of("DE"))).thenThrow(new CountryImportException("boom", null));
+
+        CountryRefresher.Result result = refresher(1).refresh();
+
+        assertThat(result).isEqualTo(new CountryRefresher.Result(2, 1, 1));
+        verify(importer, times(2)).fetchAll(anyList());
+        assertThat(cache.get("NL").getCommonName()).isEqualTo("Nederland");
+        verify(repo, never()).markFetched(anyList(), any());
+    }
+
+    @Test
+    void refresh_doesNothing_whenEverythingIsFresh_orTheCircuitIsOpen() {
+        when(repo.findAll()).thenReturn(List.of(nl(Instant.now())));
+
+        assertThat(refresher(50).refresh()).isEqualTo(CountryRefresher.Result.NONE);
+
+        when(importer.isCircuitOpen()).thenReturn(true);
+        when(repo.findAll()).thenReturn(List.of(nl(LONG_AGO)));
+        assertThat(refresher(50).refresh()).isEqualTo(CountryRefresher.Result.NONE);
+
+        verify(importer, never()).fetchAll(anyList());
+        verify(repo, never()).saveAll(anyList());
+    }
+}
@@ -0,0 +1,58 @@
+package com.example.countrypostcodeservice.service;
+
+import com.example.countrypostcodeservice.domain.Country;
+import com.example.countrypostcodeservice.dto.CountryInfoResponse;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+import com.fasterxml.jackson.dataformat.smile.databind.SmileMapper;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CountrySnapshotsTest {
+
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final CountrySnapshots snapshots = new CountrySnapshots(mapper);
+
+    @Test
+    void snapshot_holdsSameJsonAsDtoSerialization() throws Exception {
+        var nl = new Country("NL", "Netherlands", "#### @@", "^(\\d{4}[A-Z]{2})$");
+
+        CountrySnapshot snapshot = snapshots.snapshotOf(nl);
+
+        assertThat(snapshot.json()).isEqualTo(mapper.writeValueAsBytes(CountryInfoResponse.from(nl)));
+        assertThat(snapshot.etag()).isEqualTo("\"" + nl.contentHash() + "\"");
+    }
+
+    @Test
+    void snapshot_isReused_untilContentChanges() {
+        var first = new Country("CN", "China", "######", "^(\\d{6})$");
+        var refreshedSame = new Country("CN", "China", "######", "^(\\d{6})$");
+        var refreshedChanged = new Country("CN", "China", "#####", "^(\\d{5})$");
+
+        CountrySnapshot a = snapshots.snapshotOf(first);
+        assertThat(snapshots.snapshotOf(first)).isSameAs(a);
+        assertThat(snapshots.snapshotOf(refreshedSame)).isSameAs(a);
+
+        CountrySnapshot b = snapshots.snapshotOf(refreshedChanged);
+        assertThat(b).isNotSameAs(a);
+        assertThat(b.etag()).isNotEqualTo(a.etag());
+        assertThat(snapshots.snapshotOf(refreshedChanged)).isSameAs(b);
+    }
+
+    @Test
+    void snapshot_holdsCborAndSmile_thatDecodeToTheSameResponse_withTheirOwnEtags() throws Exception {
+        var be = new Country("BE", "BEL", "056", "Belgium", "####", "^(\\d{4})$", null);
+
+        CountrySnapshot snapshot = snapshots.snapshotOf(be);
+
+        var expected = CountryInfoResponse.from(be);
+        assertThat(new CBORMapper().readValue(snapshot.body(CountrySnapshot.Encoding.CBOR), CountryInfoResponse.class))
+                .isEqualTo(expected);
+        assertThat(new SmileMapper().readValue(snapshot.body(CountrySnapshot.Encoding.SMILE), CountryInfoResponse.class))
+                .isEqualTo(expected);
+        assertThat(snapshot.body(CountrySnapshot.Encoding.JSON)).isSameAs(snapshot.json());
+        assertThat(snapshot.etag(CountrySnapshot.Encoding.JSON)).isEqualTo(snapshot.etag());
+        assertThat(snapshot.etag(CountrySnapshot.Encoding.CBOR)).isEqualTo("\"" + be.contentHash() + "-cbor\"");
+    }
+}
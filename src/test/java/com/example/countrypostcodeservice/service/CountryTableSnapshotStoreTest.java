@@ -0,0 +1,115 @@
+package com.example.countrypostcodeservice.service;
+
+import com.example.countrypostcodeservice.domain.Country;
+import com.example.countrypostcodeservice.repository.CountryRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.data.domain.Sort;
+import reactor.core.scheduler.Schedulers;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.*;
+
+class CountryTableSnapshotStoreTest {
+
+    @TempDir
+    Path dir;
+
+    private final CountryCache cache = new CountryCache(100, Duration.ofMinutes(1));
+
+    private static Country nl() {
+        return new Country("NL", "Netherlands", "#### @@", "^(\\d{4}[A-Z]{2})$", Instant.ofEpochMilli(1_700_000_000_000L));
+    }
+
+    @Test
+    void load_servesSnapshotFromCache_andRestoresTheTable() throws IOException {
+        Path file = dir.resolve("countries.snapshot");
+        CountryTableSnapshot.write(file, List.of(nl()));
+        var repo = mock(CountryRepository.class);
+
+        var store = new CountryTableSnapshotStore(repo, cache, Schedulers.immediate(), file);
+
+        assertThat(store.load()).isEqualTo(1);
+        assertThat(cache.get("NL")).isNotNull()
+                .extracting(Country::getFetchedAt).isEqualTo(nl().getFetchedAt());
+        verify(repo).saveAll(anyList());
+    }
+
+    @Test
+    void load_doesNotOverwriteRowsStoredSinceTheSnapshot() throws IOException {
+        Path file = dir.resolve("countries.snapshot");
+        Country de = new Country("DE", "Germany", "#####", "^(\\d{5})$", nl().getFetchedAt());
+        CountryTableSnapshot.write(file, List.of(de, nl()));
+        var repo = mock(CountryRepository.class);
+        Country refreshed = nl().withFetchedAt(nl().getFetchedAt().plusSeconds(60));
+        when(repo.findAllById(anyList())).thenReturn(List.of(refreshed));
+
+        var store = new CountryTableSnapshotStore(repo, cache, Schedulers.immediate(), file);
+
+        assertThat(store.load()).isEqualTo(2);
+        verify(repo).saveAll(argThat((List<Country> rows) ->
+                rows.size() == 1 && rows.get(0).getCca2().equals("DE")));
+    }
+
+    @Test
+    void load_doesNotOverwriteRowsRefreshedWhileTheTableWasRead() throws IOException {
+        Path file = dir.resolve("countries.snapshot");
+        CountryTableSnapshot.write(file, List.of(nl()));
+        var repo = mock(CountryRepository.class);
+        Country refreshed = nl().withFetchedAt(nl().getFetchedAt().plusSeconds(60));
+        // the table had no NL yet when it was read; a refresh stores one before the write
+        when(repo.findAllById(anyList())).thenAnswer(inv -> {
+            cache.put(refreshed);
+            return List.of();
+        });
+
+        var store = new CountryTableSnapshotStore(repo, cache, Schedulers.immediate(), file);
+
+        assertThat(store.load()).isEqualTo(1);
+        verify(repo, never()).saveAll(anyList());
+        assertThat(cache.get("NL")).isSameAs(refreshed);
+    }
+
+    @Test
+    void load_startsCold_whenSnapshotIsMissingOrCorrupt() throws IOException {
+        Path file = dir.resolve("countries.snapshot");
+        var repo = mock(CountryRepository.class);
+        var store = new CountryTableSnapshotStore(repo, cache, Schedulers.immediate(), file);
+
+        assertThat(store.load()).isZero();
+        Files.write(file, new byte[] {1, 2, 3});
+        assertThat(store.load()).isZero();
+
+        assertThat(cache.get("NL")).isNull();
+        verifyNoInteractions(repo);
+    }
+
+    @Test
+    void writeIfChanged_skipsEmptyAndUnchangedTables() throws IOException {
+        Path file = dir.resolve("countries.snapshot");
+        var repo = mock(CountryRepository.class);
+        when(repo.findAll(any(Sort.class))).thenReturn(List.of()).thenReturn(List.of(nl())).thenReturn(List.of(nl()));
+        var store = new CountryTableSnapshotStore(repo, cache, Schedulers.immediate(), file);
+
+        store.writeIfChanged();
+        assertThat(file).doesNotExist();
+
+        store.writeIfChanged();
+        assertThat(CountryTableSnapshot.read(file)).extracting(Country::getCca2).containsExactly("NL");
+
+        Files.setLastModifiedTime(file, FileTime.fromMillis(0));
+        store.writeIfChanged();
+        assertThat(Files.getLastModifiedTime(file).toMillis()).isZero();
+    }
+}
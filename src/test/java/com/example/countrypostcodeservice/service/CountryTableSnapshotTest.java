@@ -0,0 +1,89 @@
+package com.example.countrypostcodeservice.service;
+
+import com.example.countrypostcodeservice.domain.Country;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class CountryTableSnapshotTest {
+
+    @TempDir
+    Path dir;
+
+    private static final List<Country> COUNTRIES = List.of(
+            new Country("NL", "NLD", "528", "Netherlands", "#### @@", "^(\\d{4}[A-Z]{2})$", Instant.ofEpochMilli(1_700_000_000_000L)),
+            new Country("CO", "Colombia", null, null, null),
+            new Country("CI", "Côte d'Ivoire", "", "", Instant.ofEpochMilli(0)));
+
+    @Test
+    void roundTrips_allFields_includingNullsAndUnicode() throws IOException {
+        Path file = dir.resolve("countries.snapshot");
+        CountryTableSnapshot.write(file, COUNTRIES);
+
+        List<Country> read = CountryTableSnapshot.read(file);
+
+        assertThat(read).hasSize(3);
+        for (int i = 0; i < COUNTRIES.size(); i++) {
+            Country expected = COUNTRIES.get(i);
+            Country actual = read.get(i);
+            assertThat(actual.getCca2()).isEqualTo(expected.getCca2());
+            assertThat(actual.getCommonName()).isEqualTo(expected.getCommonName());
+            assertThat(actual.getPostalFormat()).isEqualTo(expected.getPostalFormat());
+            assertThat(actual.getPostalRegex()).isEqualTo(expected.getPostalRegex());
+            assertThat(actual.getFetchedAt()).isEqualTo(expected.getFetchedAt());
+            assertThat(actual.getCca3()).isEqualTo(expected.getCca3());
+            assertThat(actual.getCcn3()).isEqualTo(expected.getCcn3());
+        }
+    }
+
+    @Test
+    void replacesExistingFile_withoutLeavingTempFiles() throws IOException {
+        Path file = dir.resolve("countries.snapshot");
+        CountryTableSnapshot.write(file, COUNTRIES);
+        CountryTableSnapshot.write(file, COUNTRIES.subList(0, 1));
+
+        assertThat(CountryTableSnapshot.read(file)).extracting(Country::getCca2).containsExactly("NL");
+        try (var files = Files.list(dir)) {
+            assertThat(files).containsExactly(file);
+        }
+    }
+
+    @Test
+    void rejectsCorruptedPayload() throws IOException {
+        Path file = dir.resolve("countries.snapshot");
+        CountryTableSnapshot.write(file, COUNTRIES);
+        byte[] bytes = Files.readAllBytes(file);
+        bytes[CountryTableSnapshot.HEADER_BYTES + 5] ^= 0x01;
+        Files.write(file, bytes);
+
+        assertThatThrownBy(() -> CountryTableSnapshot.read(file))
+                .isInstanceOf(IOException.class)
+                .hasMessageContaining("Checksum mismatch");
+    }
+
+    @Test
+    void rejectsTruncatedFile_andOtherVersions() throws IOException {
+        Path file = dir.resolve("countries.snapshot");
+        CountryTableSnapshot.write(file, COUNTRIES);
+        byte[] bytes = Files.readAllBytes(file);
+
+        Files.write(file, Arrays.copyOf(bytes, bytes.length - 3));
+        assertThatThrownBy(() -> CountryTableSnapshot.read(file)).hasMessageContaining("Truncated");
+
+        bytes[5] = CountryTableSnapshot.VERSION + 1;
+        Files.write(file, bytes);
+        assertThatThrownBy(() -> CountryTableSnapshot.read(file)).hasMessageContaining("Unsupported country snapshot version");
+
+        Files.write(file, new byte[] {1, 2, 3});
+        assertThatThrownBy(() -> CountryTableSnapshot.read(file)).hasMessageContaining("Not a country snapshot");
+    }
+}
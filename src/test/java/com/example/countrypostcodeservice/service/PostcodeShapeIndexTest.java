@@ -0,0 +1,95 @@
+package com.example.countrypostcodeservice.service;
+
+import com.example.countrypostcodeservice.domain.Country;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PostcodeShapeIndexTest {
+
+    private static List<Country> sample() throws IOException {
+        List<Country> countries = new ArrayList<>();
+        try (InputStream in = PostcodeShapeIndexTest.class.getResourceAsStream("/restcountries-sample.json")) {
+            for (JsonNode node : new ObjectMapper().readTree(in)) {
+                JsonNode postal = node.path("postalCode");
+                countries.add(new Country(node.get("cca2").asText(), node.path("name").path("common").asText(),
+                        postal.path("format").textValue(), postal.path("regex").textValue()));
+            }
+        }
+        return countries;
+    }
+
+    private static List<String> naive(List<Country> countries, String postcode) {
+        return countries.stream()
+                .filter(c -> c.matchesPostalCode(postcode))
+                .map(Country::getCca2)
+                .sorted()
+                .toList();
+    }
+
+    @Test
+    void countriesFor_findsEveryCountry_theNaiveLoopFinds() throws IOException {
+        List<Country> countries = sample();
+        PostcodeShapeIndex index = new PostcodeShapeIndex(countries);
+        String alphabet = "0123456789ABCDEFGHIJKLMNOPQRSTUVWXYZa -É";
+        Random random = new Random(42);
+        List<String> inputs = new ArrayList<>(List.of("", "1234AB", "12345", "SW192AB", "K1A 0B1", "12345-6789",
+                "SE12345", "MD-1234", "123 45", "1234567", "a1234b"));
+        for (int i = 0; i < 20_000; i++) {
+            StringBuilder sb = new StringBuilder();
+            int length = random.nextInt(11);
+            boolean digitsOnly = random.nextBoolean();
+            for (int k = 0; k < length; k++) {
+                sb.append(digitsOnly ? (char) ('0' + random.nextInt(10)) : alphabet.charAt(random.nextInt(alphabet.length())));
+            }
+            inputs.add(sb.toString());
+        }
+
+        int nonEmpty = 0;
+        for (String input : inputs) {
+            List<String> expected = naive(countries, input);
+            assertThat(index.countriesFor(input)).as(input).isEqualTo(expected);
+            if (!expected.isEmpty()) nonEmpty++;
+        }
+        assertThat(nonEmpty).isGreaterThan(1_000);
+        assertThat(index.countriesFor("1234AB")).containsExactly("NL");
+        assertThat(index.countriesFor("12345")).contains("DE", "FR", "US", "SE").doesNotContain("NL", "BE");
+    }
+
+    @Test
+    void countriesFor_keepsRegexesOutsideTheDfaSubset() {
+        PostcodeShapeIndex index = new PostcodeShapeIndex(List.of(
+                new Country("XA", "Flagged", null, "(?i)^[a-z]{2}\\d$"),
+                new Country("XB", "Unicode", null, "^\\p{L}\\d$"),
+                new Country("XC", "None", null, null)));
+
+        assertThat(index.countriesFor("ab1")).containsExactly("XA");
+        assertThat(index.countriesFor("É1")).containsExactly("XB");
+        assertThat(index.countriesFor("")).isEmpty();
+    }
+
+    @Test
+    void lookup_triesTheCompactForm_andRebuildsWhenTheCacheChanges() throws IOException {
+        var cache = new CountryCache(100, Duration.ofMinutes(1));
+        var lookup = new PostcodeCountryLookup(cache);
+        assertThat(lookup.countriesFor("1234AB")).isEmpty();
+
+        cache.putAll(sample());
+        assertThat(lookup.countriesFor("1234 ab")).containsExactly("NL");
+        assertThat(lookup.countriesFor("12345-6789")).containsExactly("US");
+        PostcodeShapeIndex built = lookup.index();
+        assertThat(lookup.index()).isSameAs(built);
+
+        cache.invalidate("NL");
+        assertThat(lookup.countriesFor("1234AB")).isEmpty();
+    }
+}
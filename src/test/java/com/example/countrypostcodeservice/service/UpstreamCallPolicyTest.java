@@ -0,0 +1,166 @@
+package com.example.countrypostcodeservice.service;
+
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Mono;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class UpstreamCallPolicyTest {
+
+    private MockWebServer server;
+    private WebClient client;
+
+    @BeforeEach
+    void setup() throws IOException {
+        server = new MockWebServer();
+        server.start();
+        client = WebClient.builder().baseUrl(server.url("/").toString()).build();
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        server.shutdown();
+    }
+
+    private static UpstreamCallPolicy policy(Duration attemptTimeout, Duration deadline, int maxRetries, boolean hedge) {
+        return new UpstreamCallPolicy(attemptTimeout, deadline, maxRetries,
+                Duration.ofMillis(10), Duration.ofMillis(50), 0.5, hedge, Duration.ofMillis(200), Duration.ofMillis(10));
+    }
+
+    private Mono<String> call() {
+        return client.get().uri("/v3.1/alpha/nl").retrieve().bodyToMono(String.class);
+    }
+
+    @Test
+    void retriesTransientFailures_withBackoff_untilSuccess() {
+        server.enqueue(new MockResponse().setResponseCode(503));
+        server.enqueue(new MockResponse().setResponseCode(502));
+        server.enqueue(new MockResponse().setBody("ok"));
+
+        String body = policy(Duration.ofSeconds(1), Duration.ofSeconds(5), 2, false).apply(call()).block();
+
+        assertThat(body).isEqualTo("ok");
+        assertThat(server.getRequestCount()).isEqualTo(3);
+    }
+
+    @Test
+    void surfacesLastFailure_whenRetriesAreExhausted() {
+        for (int i = 0; i < 3; i++) server.enqueue(new MockResponse().setResponseCode(503));
+
+        assertThatThrownBy(() -> policy(Duration.ofSeconds(1), Duration.ofSeconds(5), 2, false).apply(call()).block())
+                .isInstanceOf(WebClientResponseException.ServiceUnavailable.class);
+        assertThat(server.getRequestCount()).isEqualTo(3);
+    }
+
+    @Test
+    void doesNotRetry_nonTransientFailures() {
+        server.enqueue(new MockResponse().setResponseCode(404));
+        server.enqueue(new MockResponse().setResponseCode(500));
+
+        var policy = policy(Duration.ofSeconds(1), Duration.ofSeconds(5), 2, false);
+        assertThatThrownBy(() -> policy.apply(call()).block()).isInstanceOf(WebClientResponseException.NotFound.class);
+        assertThatThrownBy(() -> policy.apply(call()).block()).isInstanceOf(WebClientResponseException.InternalServerError.class);
+        assertThat(server.getRequestCount()).isEqualTo(2);
+    }
+
+    @Test
+    void retriesSlowAttempt_afterAttemptTimeout() {
+        server.enqueue(new MockResponse().setBody("slow").setHeadersDelay(1, TimeUnit.SECONDS));
+        server.enqueue(new MockResponse().setBody("fast"));
+
+        String body = policy(Duration.ofMillis(200), Duration.ofSeconds(5), 1, false).apply(call()).block();
+
+        assertThat(body).isEqualTo("fast");
+        assertThat(server.getRequestCount()).isEqualTo(2);
+    }
+
+    @Test
+    void failsAtDeadline_evenWhileRetriesRemain() {
+        for (int i = 0; i < 5; i++) {
+            server.enqueue(new MockResponse().setBody("slow").setHeadersDelay(1, TimeUnit.SECONDS));
+        }
+
+        long start = System.nanoTime();
+        assertThatThrownBy(() -> policy(Duration.ofMillis(300), Duration.ofMillis(500), 4, false).apply(call()).block())
+                .hasCauseInstanceOf(TimeoutException.class);
+        assertThat(Duration.ofNanos(System.nanoTime() - start)).isLessThan(Duration.ofMillis(900));
+    }
+
+    @Test
+    void hedgesSlowAttempt_andTakesTheFirstAnswer() {
+        server.enqueue(new MockResponse().setBody("slow").setHeadersDelay(2, TimeUnit.SECONDS));
+        server.enqueue(new MockResponse().setBody("hedge"));
+
+        long start = System.nanoTime();
+        String body = policy(Duration.ofSeconds(5), Duration.ofSeconds(5), 0, true).apply(call()).block();
+
+        assertThat(body).isEqualTo("hedge");
+        assertThat(server.getRequestCount()).isEqualTo(2);
+        assertThat(Duration.ofNanos(System.nanoTime() - start)).isLessThan(Duration.ofSeconds(1));
+    }
+
+    @Test
+    void hedgeAnswers_whenTheFirstAttemptFailsAfterTheHedgeDelay() {
+        server.enqueue(new MockResponse().setResponseCode(503).setHeadersDelay(400, TimeUnit.MILLISECONDS));
+        server.enqueue(new MockResponse().setBody("hedge").setHeadersDelay(800, TimeUnit.MILLISECONDS));
+
+        String body = policy(Duration.ofSeconds(5), Duration.ofSeconds(5), 0, true).apply(call()).block();
+
+        assertThat(body).isEqualTo("hedge");
+        assertThat(server.getRequestCount()).isEqualTo(2);
+    }
+
+    @Test
+    void surfacesUpstreamFailure_whenTheHedgeFailsToo() {
+        server.enqueue(new MockResponse().setResponseCode(503).setHeadersDelay(400, TimeUnit.MILLISECONDS));
+        server.enqueue(new MockResponse().setResponseCode(503));
+
+        assertThatThrownBy(() -> policy(Duration.ofSeconds(5), Duration.ofSeconds(5), 0, true).apply(call()).block())
+                .isInstanceOf(WebClientResponseException.ServiceUnavailable.class);
+    }
+
+    @Test
+    void doesNotHedge_afterANonTransientFailure() throws InterruptedException {
+        server.enqueue(new MockResponse().setResponseCode(404));
+        server.enqueue(new MockResponse().setBody("hedge"));
+
+        assertThatThrownBy(() -> policy(Duration.ofSeconds(5), Duration.ofSeconds(5), 0, true).apply(call()).block())
+                .isInstanceOf(WebClientResponseException.NotFound.class);
+        Thread.sleep(300);
+        assertThat(server.getRequestCount()).isEqualTo(1);
+    }
+
+    @Test
+    void doesNotHedge_fastAttempts() {
+        server.enqueue(new MockResponse().setBody("fast"));
+
+        String body = policy(Duration.ofSeconds(5), Duration.ofSeconds(5), 0, true).apply(call()).block();
+
+        assertThat(body).isEqualTo("fast");
+        assertThat(server.getRequestCount()).isEqualTo(1);
+    }
+
+    @Test
+    void hedgeDelay_followsObservedP95() {
+        var policy = policy(Duration.ofSeconds(1), Duration.ofSeconds(1), 0, true);
+        assertThat(policy.hedgeDelay()).isEqualTo(Duration.ofMillis(200));   // no samples yet
+
+        for (int i = 1; i <= 100; i++) {
+            Mono.just(i).delayElement(Duration.ofMillis(i <= 95 ? 0 : 60)).transform(policy::apply).block();
+        }
+
+        assertThat(policy.hedgeDelay()).isBetween(Duration.ofMillis(10), Duration.ofMillis(60));
+    }
+}
@@ -0,0 +1,176 @@
+package com.example.countrypostcodeservice.service;
+
+import com.example.countrypostcodeservice.exception.UpstreamUnavailableException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class UpstreamGuardTest {
+
+    private MockWebServer server;
+    private WebClient client;
+
+    @BeforeEach
+    void setup() throws IOException {
+        server = new MockWebServer();
+        server.start();
+        client = WebClient.builder().baseUrl(server.url("/").toString()).build();
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        server.shutdown();
+    }
+
+    /** Breaker over the last 4 calls, opening at 50% failures or slow (>100 ms) calls. */
+    private static UpstreamGuard breaker(Duration openDuration) {
+        return new UpstreamGuard(4, 4, 50, 50, Duration.ofMillis(100), openDuration, 1,
+                100, 100, Duration.ofSeconds(5), new SimpleMeterRegistry());
+    }
+
+    private static UpstreamGuard bulkhead(int maxConcurrent, int maxQueued, Duration maxWait) {
+        return new UpstreamGuard(100, 100, 100, 100, Duration.ofMinutes(1), Duration.ofMinutes(1), 1,
+                maxConcurrent, maxQueued, maxWait, new SimpleMeterRegistry());
+    }
+
+    private Mono<String> call() {
+        return client.get().uri("/v3.1/alpha/nl").retrieve().bodyToMono(String.class);
+    }
+
+    @Test
+    void opensOnFailures_andFailsFastWithoutCallingUpstream() {
+        var guard = breaker(Duration.ofMinutes(1));
+        for (int i = 0; i < 4; i++) server.enqueue(new MockResponse().setResponseCode(503));
+
+        for (int i = 0; i < 4; i++) {
+            assertThatThrownBy(() -> guard.protect(call()).block())
+                    .isInstanceOf(WebClientResponseException.ServiceUnavailable.class);
+        }
+
+        assertThat(guard.isOpen()).isTrue();
+        assertThatThrownBy(() -> guard.protect(call()).block())
+                .isInstanceOf(UpstreamUnavailableException.class)
+                .hasMessageContaining("OPEN");
+        assertThat(server.getRequestCount()).isEqualTo(4);
+        assertThat(guard.status().circuitBreaker()).isEqualTo("OPEN");
+        assertThat(guard.status().notPermittedCalls()).isEqualTo(1);
+    }
+
+    @Test
+    void staysClosed_on404s() {
+        var guard = breaker(Duration.ofMinutes(1));
+        for (int i = 0; i < 4; i++) server.enqueue(new MockResponse().setResponseCode(404));
+
+        for (int i = 0; i < 4; i++) {
+            assertThatThrownBy(() -> guard.protect(call()).block())
+                    .isInstanceOf(WebClientResponseException.NotFound.class);
+        }
+
+        assertThat(guard.isOpen()).isFalse();
+        assertThat(guard.status().failureRate()).isZero();
+    }
+
+    @Test
+    void opensOnSlowCalls() {
+        var guard = breaker(Duration.ofMinutes(1));
+        for (int i = 0; i < 4; i++) {
+            server.enqueue(new MockResponse().setBody("slow").setHeadersDelay(200, TimeUnit.MILLISECONDS));
+        }
+
+        for (int i = 0; i < 4; i++) assertThat(guard.protect(call()).block()).isEqualTo("slow");
+
+        assertThat(guard.isOpen()).isTrue();
+    }
+
+    @Test
+    void closesAgain_afterSuccessfulHalfOpenProbe() throws Exception {
+        var guard = breaker(Duration.ofMillis(200));
+        for (int i = 0; i < 4; i++) server.enqueue(new MockResponse().setResponseCode(503));
+        for (int i = 0; i < 4; i++) guard.protect(call()).onErrorResume(e -> Mono.empty()).block();
+        assertThat(guard.isOpen()).isTrue();
+
+        for (int i = 0; i < 50 && guard.isOpen(); i++) Thread.sleep(20);
+        assertThat(guard.status().circuitBreaker()).isEqualTo("HALF_OPEN");
+
+        server.enqueue(new MockResponse().setBody("ok"));
+        assertThat(guard.protect(call()).block()).isEqualTo("ok");
+        assertThat(guard.status().circuitBreaker()).isEqualTo("CLOSED");
+    }
+
+    @Test
+    void bulkhead_capsConcurrentCalls_andRejectsBeyondTheQueue() {
+        AtomicInteger inFlight = new AtomicInteger();
+        AtomicInteger maxInFlight = new AtomicInteger();
+        server.setDispatcher(new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) throws InterruptedException {
+                maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+                Thread.sleep(200);
+                inFlight.decrementAndGet();
+                return new MockResponse().setBody("ok");
+            }
+        });
+        var guard = bulkhead(2, 2, Duration.ofSeconds(5));
+
+        List<String> results = Flux.range(0, 5)
+                .flatMap(i -> guard.protect(call()).onErrorResume(UpstreamUnavailableException.class,
+                        e -> Mono.just("rejected")))
+                .collectList()
+                .block(Duration.ofSeconds(10));
+
+        assertThat(results).containsExactlyInAnyOrder("ok", "ok", "ok", "ok", "rejected");
+        assertThat(maxInFlight.get()).isEqualTo(2);
+        assertThat(guard.status().activeCalls()).isZero();
+        assertThat(guard.status().queuedCalls()).isZero();
+    }
+
+    @Test
+    void bulkhead_failsQueuedCall_afterMaxWait() {
+        server.enqueue(new MockResponse().setBody("slow").setHeadersDelay(500, TimeUnit.MILLISECONDS));
+        var guard = bulkhead(1, 1, Duration.ofMillis(100));
+
+        Disposable first = guard.protect(call()).subscribe();
+        assertThatThrownBy(() -> guard.protect(call()).block())
+                .isInstanceOf(UpstreamUnavailableException.class)
+                .hasMessageContaining("Timed out waiting");
+        assertThat(guard.status().queuedCalls()).isZero();
+        first.dispose();
+        assertThat(guard.status().activeCalls()).isZero();
+    }
+
+    @Test
+    void bulkhead_handsSlotToNextWaiter_whenQueuedCallerCancels() {
+        server.enqueue(new MockResponse().setBody("first").setHeadersDelay(200, TimeUnit.MILLISECONDS));
+        server.enqueue(new MockResponse().setBody("third"));
+        var guard = bulkhead(1, 2, Duration.ofSeconds(5));
+
+        Mono<String> first = guard.protect(call()).cache();
+        first.subscribe();
+        Disposable second = guard.protect(call()).subscribe();
+        Mono<String> third = guard.protect(call());
+        second.dispose();
+
+        assertThat(third.block(Duration.ofSeconds(5))).isEqualTo("third");
+        assertThat(first.block(Duration.ofSeconds(5))).isEqualTo("first");
+        assertThat(server.getRequestCount()).isEqualTo(2);
+    }
+}